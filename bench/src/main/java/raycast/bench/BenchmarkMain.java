@@ -0,0 +1,38 @@
+package raycast.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * <p>
+ * run the JMH benchmarks of this module. it is {@link Main} of JMH except that the results are written as JSON
+ * to benchmark-results.json unless other result options are given, so results of two releases can be
+ * diffed.
+ * </p>
+ *
+ * <pre>
+ * java -jar benchmarks.jar [JMH options] [benchmark regex]
+ *   -rff    file to write the results to, default benchmark-results.json
+ *   -rf     format of the results, default json
+ * </pre>
+ */
+public class BenchmarkMain {
+
+	public static final String DEFAULT_RESULTS = "benchmark-results.json";
+
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<>(Arrays.asList(args));
+		if (!options.contains("-rf")) {
+			options.add("-rf");
+			options.add("json");
+		}
+		if (!options.contains("-rff")) {
+			options.add("-rff");
+			options.add(DEFAULT_RESULTS);
+		}
+		Main.main(options.toArray(new String[0]));
+	}
+}
@@ -0,0 +1,98 @@
+package raycast.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raycast.CanvasMap;
+import raycast.engine.Acceleration;
+import raycast.engine.HitBuffer;
+import raycast.engine.RayCaster;
+import raycast.entity.geometry.PolyShape;
+import raycast.scene.SceneGenerator;
+import raycast.scene.SceneGenerator.Layout;
+
+/**
+ * <p>
+ * a full cast of 360 * 3 rays, like one frame of MultiRayAnimator, with every {@link Acceleration} over:
+ * <ul>
+ * <li>sample: {@link CanvasMap#createSampleShapes()}</li>
+ * <li>edges-N: a grid of N / 4 boxes from {@link SceneGenerator}, about N edges</li>
+ * <li>a layout name: {@link CastBenchmark#GENERATED_SHAPES} shapes of that {@link Layout}</li>
+ * </ul>
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class CastBenchmark {
+
+	/**
+	 * number of shapes in scenes of a {@link Layout}
+	 */
+	public static final int GENERATED_SHAPES = 5000;
+	public static final double SIZE = 700;
+	public static final long SEED = 42;
+
+	@Param({ "sample", "edges-10", "edges-1000", "edges-100000", "POLYGONS", "BOXES", "MAZE", "CLUSTERS" })
+	public String scene;
+
+	@Param({ "BRUTE_FORCE", "BATCH", "BVH", "GRID", "DYNAMIC", "SECTOR" })
+	public Acceleration acceleration;
+
+	private List<PolyShape> shapes;
+	private RayCaster caster;
+	private HitBuffer hits = new HitBuffer();
+	private double lightX = SIZE / 2;
+
+	@Setup
+	public void setup() {
+		shapes = createScene(scene);
+		caster = new RayCaster(acceleration.create()).setArea(SIZE, SIZE);
+		caster.update(shapes);
+	}
+
+	@TearDown
+	public void tearDown() {
+		caster.shutdown();
+	}
+
+	@Benchmark
+	public double cast() {
+		// move the light a little every frame so nothing can be cached between frames
+		lightX = lightX == SIZE / 2 ? SIZE / 2 + 1 : SIZE / 2;
+		caster.cast(shapes, lightX, SIZE / 2, 360 * 3, hits);
+		return hits.distance(0);
+	}
+
+	/**
+	 * create one of the scenes listed in the {@link CastBenchmark} description
+	 * @param scene - name of the scene
+	 * @return list of shapes
+	 */
+	public static List<PolyShape> createScene(String scene) {
+		if (scene.equals("sample")) {
+			return CanvasMap.createSampleShapes();
+		}
+		if (scene.startsWith("edges-")) {
+			int edges = Integer.parseInt(scene.substring("edges-".length()));
+			return SceneGenerator.generate(Layout.BOXES, Math.max(1, edges / 4), SIZE, SIZE, SEED);
+		}
+		return SceneGenerator.generate(Layout.valueOf(scene), GENERATED_SHAPES, SIZE, SIZE, SEED);
+	}
+}
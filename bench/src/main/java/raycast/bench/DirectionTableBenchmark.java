@@ -0,0 +1,88 @@
+package raycast.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raycast.CanvasMap;
+import raycast.engine.DirectionTable;
+import raycast.engine.HitBuffer;
+import raycast.engine.RayCaster;
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * <p>
+ * how much of a frame is spent computing ray directions, per frame of the given ray count:
+ * <ul>
+ * <li>trig: computing the direction of every ray with {@link Math#cos(double)} and {@link Math#sin(double)}</li>
+ * <li>table: reading the same directions from a {@link DirectionTable}</li>
+ * <li>cast: a full {@link RayCaster#cast} over the sample shapes, which reads from the table</li>
+ * </ul>
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectionTableBenchmark {
+
+	@Param({ "1080", "10000", "100000" })
+	public int rayCount;
+
+	private List<PolyShape> shapes;
+	private DirectionTable table;
+	private RayCaster caster;
+	private HitBuffer hits = new HitBuffer();
+
+	@Setup
+	public void setup() {
+		shapes = CanvasMap.createSampleShapes();
+		table = new DirectionTable().update(rayCount);
+		caster = new RayCaster();
+	}
+
+	@TearDown
+	public void tearDown() {
+		caster.shutdown();
+	}
+
+	@Benchmark
+	public double trig() {
+		double sum = 0;
+		double rayIncrementer = 360d / rayCount;
+		for (int ray = 0; ray < rayCount; ray++) {
+			double rayAngle = Math.toRadians(ray * rayIncrementer);
+			sum += Math.cos(rayAngle) + Math.sin(rayAngle);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double table() {
+		double sum = 0;
+		for (int ray = 0; ray < table.size(); ray++) {
+			sum += table.dirX(ray) + table.dirY(ray);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double cast() {
+		caster.cast(shapes, 350, 350, rayCount, hits);
+		return hits.distance(0);
+	}
+}
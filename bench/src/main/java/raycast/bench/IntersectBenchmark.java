@@ -0,0 +1,56 @@
+package raycast.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raycast.entity.geometry.PolyShape;
+import utility.IntersectUtil;
+
+/**
+ * single intersection test of {@link IntersectUtil} and construction of {@link PolyShape}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntersectBenchmark {
+
+	private double[] result = new double[4];
+	private double[] points = new double[200];
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < points.length; i += 2) {
+			double angle = Math.PI * i / points.length;
+			points[i] = 350 + 100 * Math.cos(angle);
+			points[i + 1] = 350 + 100 * Math.sin(angle);
+		}
+	}
+
+	@Benchmark
+	public double getIntersection() {
+		return IntersectUtil.getIntersection(result, 350, 350, 351, 350.5, 400, 300, 420, 500) ? result[2] : 0;
+	}
+
+	@Benchmark
+	public PolyShape setPoints6() {
+		return new PolyShape().setPoints(300, 250, 50, 70, 150, 170);
+	}
+
+	@Benchmark
+	public PolyShape setPoints200() {
+		return new PolyShape().setPoints(points);
+	}
+}
@@ -0,0 +1,40 @@
+package raycast.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import raycast.entity.geometry.PolyShape;
+import raycast.scene.SceneGenerator;
+import raycast.scene.SceneGenerator.Layout;
+
+/**
+ * generating {@link CastBenchmark#GENERATED_SHAPES} shapes of every {@link Layout}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneGeneratorBenchmark {
+
+	@Param({ "POLYGONS", "BOXES", "MAZE", "CLUSTERS" })
+	public Layout layout;
+
+	@Benchmark
+	public List<PolyShape> generate() {
+		return SceneGenerator.generate(layout, CastBenchmark.GENERATED_SHAPES, CastBenchmark.SIZE,
+				CastBenchmark.SIZE, CastBenchmark.SEED);
+	}
+}
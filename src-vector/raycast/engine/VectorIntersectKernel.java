@@ -0,0 +1,76 @@
+package raycast.engine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>
+ * {@link IntersectKernel} which tests as many edges per instruction as the preferred vector width of the CPU
+ * allows, 4 with AVX2 and 8 with AVX-512. the scalers are computed with the same operations as the scalar
+ * loop and without fused multiply add, so every scaler is exactly the same. only vectors with a lane closer
+ * than the closest hit so far are looked at lane by lane, in order of the edges, so ties are broken the same
+ * way as {@link BruteForceAccelerator}.
+ * </p>
+ * <p>
+ * this class is optional and only compiles and runs with {@code --add-modules jdk.incubator.vector}, which
+ * is why it is kept out of src. to use it compile it next to the other classes:
+ * </p>
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp bin -d bin src-vector/raycast/engine/VectorIntersectKernel.java
+ * java --add-modules jdk.incubator.vector ...
+ * </pre>
+ * <p>
+ * {@link IntersectKernel#create()} picks it up when it is on the class path and the module is present.
+ * </p>
+ */
+public class VectorIntersectKernel extends IntersectKernel {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	private final double[] laneScalers = new double[SPECIES.length()];
+
+	@Override
+	public int nearest(EdgeBuffer edges, int from, int to, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		double[] x = edges.xs(), y = edges.ys(), dx = edges.dxs(), dy = edges.dys();
+		double[] t = laneScalers;
+		DoubleVector sx = DoubleVector.broadcast(SPECIES, startX);
+		DoubleVector sy = DoubleVector.broadcast(SPECIES, startY);
+		int closestEdge = -1;
+		double closest = maxDistance;
+		int e = from;
+		for (int bound = from + SPECIES.loopBound(to - from); e < bound; e += SPECIES.length()) {
+			DoubleVector edx = DoubleVector.fromArray(SPECIES, dx, e);
+			DoubleVector edy = DoubleVector.fromArray(SPECIES, dy, e);
+			DoubleVector qpx = sx.sub(DoubleVector.fromArray(SPECIES, x, e));
+			DoubleVector qpy = sy.sub(DoubleVector.fromArray(SPECIES, y, e));
+			DoubleVector rs = edy.mul(dirX).sub(edx.mul(dirY));
+			DoubleVector rayScaler = edx.mul(qpy).sub(qpx.mul(edy)).div(rs);
+			DoubleVector segmentScaler = qpy.mul(dirX).sub(qpx.mul(dirY)).div(rs);
+			// comparisons with NaN are false, so parallel edges fail like in the scalar loop
+			VectorMask<Double> hit = rayScaler.compare(VectorOperators.GE, 0)
+					.and(rayScaler.compare(VectorOperators.LT, closest))
+					.and(segmentScaler.compare(VectorOperators.GE, 0))
+					.and(segmentScaler.compare(VectorOperators.LE, 1));
+			if (hit.anyTrue()) {
+				rayScaler.intoArray(t, 0);
+				for (int lane = hit.firstTrue(); lane < SPECIES.length(); lane++) {
+					if (hit.laneIsSet(lane) && t[lane] < closest) {
+						closest = t[lane];
+						closestEdge = e + lane;
+					}
+				}
+			}
+		}
+		// edges left over after the last full vector
+		int rest = super.nearest(edges, e, to, startX, startY, dirX, dirY, closest);
+		return rest >= 0 ? rest : closestEdge;
+	}
+
+	@Override
+	public int lanes() {
+		return SPECIES.length();
+	}
+}
@@ -4,10 +4,19 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javafx.animation.AnimationTimer;
+import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.event.EventType;
@@ -17,7 +26,12 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import raycast.animator.AbstractAnimator;
+import raycast.engine.Acceleration;
+import raycast.engine.AdaptiveRayBudget;
+import raycast.engine.ShapeChanges;
+import raycast.entity.geometry.DirtyRegion;
 import raycast.entity.geometry.PolyShape;
+import utility.Vector2D;
 
 /**
  * this class represents the drawing area. it is backed by {@link Canvas} class.
@@ -42,6 +56,27 @@ public class CanvasMap implements CanvasMapInterface {
 	 * most common functionally needed to draw animations of ray casting.
 	 */
 	private AbstractAnimator animator;
+	/**
+	 * mouse handlers registered on the canvas for the current animator, null if none are registered.
+	 * the same instances must be passed to remove them, a new method reference is never equal to the
+	 * registered one.
+	 */
+	private EventHandler<MouseEvent> mouseDragged, mouseMoved, mouseClicked;
+	/**
+	 * index of the shape pressed with the primary button and moved by dragging the mouse, -1 if the
+	 * press was not on a shape. drags of a shape are not passed to the animator.
+	 */
+	private int draggedShape = -1;
+	private double dragX, dragY;
+	/**
+	 * true if the last press moved a shape, the click that follows the release is then not passed to
+	 * the animator.
+	 */
+	private boolean shapeMoved;
+	/**
+	 * true between {@link CanvasMap#start()} and {@link CanvasMap#stop()}
+	 */
+	private boolean running;
 	/**
 	 * <p>
 	 * create an {@link IntegerProperty} called rayCount to keep track of ray count changes.<br>
@@ -60,6 +95,11 @@ public class CanvasMap implements CanvasMapInterface {
 	 * </p>
 	 */
 	private IntegerProperty rayCount;
+
+	/**
+	 * number of threads animators may use to cast rays, 1 means all rays are cast on the JavaFX thread.
+	 */
+	private IntegerProperty parallelism;
 	
 	/**
 	 * <p>
@@ -81,8 +121,62 @@ public class CanvasMap implements CanvasMapInterface {
 	 * </p>
 	 */
 	private BooleanProperty drawLightSource, drawIntersectPoint, drawShapeJoints, drawSectors, drawBounds, drawFPS;
-	
-	private List<PolyShape> shapes;
+
+	/**
+	 * draw the frame time statistics of {@link AbstractAnimator#getProfiler()} on top of the canvas.
+	 */
+	private BooleanProperty drawProfiler;
+
+	/**
+	 * skip casts which would not change anything, see {@link raycast.engine.RayCaster#setCoherent(boolean)}
+	 */
+	private BooleanProperty coherentRays;
+
+	/**
+	 * let {@link CanvasMap#getRayBudget()} choose the number of rays, {@link CanvasMap#getRayCount()} is then
+	 * the most rays cast.
+	 */
+	private BooleanProperty adaptiveRays;
+	private AdaptiveRayBudget rayBudget;
+	/**
+	 * number of rays ray animators cast, {@link CanvasMap#getRayCount()} or the count of the budget limited
+	 * by it when adaptive rays are on.
+	 */
+	private ReadOnlyIntegerWrapper castRays;
+
+	/**
+	 * the {@link Acceleration} used by animators to find the closest hit of each ray.
+	 */
+	private ObjectProperty<Acceleration> acceleration;
+
+	/**
+	 * all shapes on the map. it is an {@link ObservableList} so animators can rebuild any cached
+	 * data when shapes are added or removed.
+	 */
+	private ObservableList<PolyShape> shapes;
+
+	/**
+	 * fixed light sources, the mouse is not in this list. the positions must not be changed while in the
+	 * list, replace the element instead so the change is observed.
+	 */
+	private ObservableList<Vector2D> lights;
+
+	/**
+	 * area of the canvas changed since the last frame drawn by the animator. shape list changes,
+	 * option changes and resizing mark it here, mouse movement is marked by the animator.
+	 */
+	private DirtyRegion dirty;
+
+	/**
+	 * incremented every time a shape is added, removed or marked as edited. used by cached layers
+	 * to know when to draw the shapes again.
+	 */
+	private long shapesVersion;
+
+	/**
+	 * shapes moved since the last frame, cleared by the animator at the end of every frame
+	 */
+	private ShapeChanges changes;
 	
 	/**
 	 * create a constructor and initialize all class variables.
@@ -90,13 +184,57 @@ public class CanvasMap implements CanvasMapInterface {
 	public CanvasMap() {
 		board = new Canvas();
 		rayCount = new SimpleIntegerProperty();
+		parallelism = new SimpleIntegerProperty(1);
 		drawBounds = new SimpleBooleanProperty();
 		drawFPS = new SimpleBooleanProperty();
+		drawProfiler = new SimpleBooleanProperty();
+		coherentRays = new SimpleBooleanProperty();
+		adaptiveRays = new SimpleBooleanProperty();
+		rayBudget = new AdaptiveRayBudget();
+		castRays = new ReadOnlyIntegerWrapper();
+		castRays.bind(Bindings.createIntegerBinding(
+				() -> adaptiveRays.get() ? rayBudget.rayCount(rayCount.get()) : rayCount.get(), rayCount, adaptiveRays,
+				rayBudget.activeRaysProperty()));
 		drawIntersectPoint = new SimpleBooleanProperty();
 		drawLightSource = new SimpleBooleanProperty();
 		drawSectors = new SimpleBooleanProperty();
 		drawShapeJoints = new SimpleBooleanProperty();
-		shapes = new ArrayList<PolyShape>(20);
+		acceleration = new SimpleObjectProperty<>(Acceleration.BVH);
+		shapes = FXCollections.observableArrayList();
+		lights = FXCollections.observableArrayList();
+
+		dirty = new DirtyRegion();
+		changes = new ShapeChanges();
+		ChangeListener<Object> markAll = (observable, oldValue, newValue) -> markDirty();
+		rayCount.addListener(markAll);
+		parallelism.addListener(markAll);
+		drawBounds.addListener(markAll);
+		drawFPS.addListener(markAll);
+		drawProfiler.addListener(markAll);
+		coherentRays.addListener(markAll);
+		adaptiveRays.addListener(markAll);
+		adaptiveRays.addListener((observable, oldValue, newValue) -> rayBudget.reset());
+		rayBudget.budgetMillisProperty().addListener(markAll);
+		drawIntersectPoint.addListener(markAll);
+		drawLightSource.addListener(markAll);
+		drawSectors.addListener(markAll);
+		drawShapeJoints.addListener(markAll);
+		acceleration.addListener(markAll);
+		board.widthProperty().addListener(markAll);
+		board.heightProperty().addListener(markAll);
+		lights.addListener((ListChangeListener<Vector2D>) change -> markDirty());
+		shapes.addListener((ListChangeListener<PolyShape>) change -> {
+			draggedShape = -1;
+			shapesVersion++;
+			changes.structural();
+			// the bounds are enough to draw the shapes, animators which draw the whole scene mark the rest
+			// when the shapes version changes
+			while (change.next()) {
+				change.getRemoved().forEach(this::markDirty);
+				change.getAddedSubList().forEach(this::markDirty);
+			}
+		});
+		board.addEventHandler(MouseEvent.MOUSE_PRESSED, this::pressShape);
 	}
 	/**
 	 * create the property class variables functions here
@@ -109,6 +247,14 @@ public class CanvasMap implements CanvasMapInterface {
 		return rayCount.get();
 	}
 	
+	public IntegerProperty parallelismProperty() {
+		return parallelism;
+	}
+
+	public int getParallelism() {
+		return parallelism.get();
+	}
+
 	public BooleanProperty drawLightSourceProperty() {
 		return drawLightSource;
 	}
@@ -156,22 +302,79 @@ public class CanvasMap implements CanvasMapInterface {
 	public boolean getDrawFPS() {
 		return drawFPS.get();
 	}
+
+	public BooleanProperty drawProfilerProperty() {
+		return drawProfiler;
+	}
+
+	public boolean getDrawProfiler() {
+		return drawProfiler.get();
+	}
+
+	public BooleanProperty coherentRaysProperty() {
+		return coherentRays;
+	}
+
+	public boolean getCoherentRays() {
+		return coherentRays.get();
+	}
+
+	public BooleanProperty adaptiveRaysProperty() {
+		return adaptiveRays;
+	}
+
+	public boolean getAdaptiveRays() {
+		return adaptiveRays.get();
+	}
+
+	@Override
+	public AdaptiveRayBudget getRayBudget() {
+		return rayBudget;
+	}
+
+	@Override
+	public ReadOnlyIntegerProperty castRaysProperty() {
+		return castRays.getReadOnlyProperty();
+	}
+
+	@Override
+	public int getCastRays() {
+		return castRays.get();
+	}
+
+	public ObjectProperty<Acceleration> accelerationProperty() {
+		return acceleration;
+	}
+
+	public Acceleration getAcceleration() {
+		return acceleration.get();
+	}
 	
 	/**
 	 * create a method called setAnimator.
-	 * set an {@link AbstractAnimator}. if an animator exists {@link CanvasMap#stop()} it and 
-	 * call {@link CanvasMap#removeMouseEvents()}. then set the new animator and
-	 * call {@link CanvasMap#start()} and {@link CanvasMap#registerMouseEvents()}.
+	 * set an {@link AbstractAnimator}. if an animator exists {@link CanvasMap#stop()} it,
+	 * call {@link CanvasMap#removeMouseEvents()} and {@link AbstractAnimator#release()}. then set the new
+	 * animator and call {@link CanvasMap#start()} and {@link CanvasMap#registerMouseEvents()}.
+	 * the new animator is only started if it is the first one or the old one was running, setting the
+	 * current animator again does nothing.
 	 * @param newAnimator - new {@link AbstractAnimator} object 
 	 * @return the current instance of this object
 	 */
 	public CanvasMap setAnimator(AbstractAnimator newAnimator) {
+		if (newAnimator == animator) {
+			return this;
+		}
+		boolean start = animator == null || running;
 		if (animator != null) {
 			stop();
 			removeMouseEvents();
+			animator.release();
 		}
 		animator = newAnimator;
-		start();
+		markDirty();
+		if (start) {
+			start();
+		}
 		registerMouseEvents();
 		return this;
 	}
@@ -182,14 +385,29 @@ public class CanvasMap implements CanvasMapInterface {
 	 * {@link MouseEvent#MOUSE_MOVED} or {@link MouseEvent#MOUSE_DRAGGED}.<br>
 	 * call {@link CanvasMap#addEventHandler} twice and pass to it
 	 * {@link MouseEvent#MOUSE_DRAGGED}, {@link animator#mouseDragged} and
-	 * {@link MouseEvent#MOUSE_MOVED}, {@link animator#mouseMoved}.</p>
+	 * {@link MouseEvent#MOUSE_MOVED}, {@link animator#mouseMoved}.
+	 * {@link MouseEvent#MOUSE_CLICKED} is passed to {@link animator#mouseClicked}.
+	 * drags which started on a shape move the shape instead, see {@link CanvasMap#dragShape(MouseEvent)}.</p>
 	 * <p>a method can be passed directly as an argument if the method signature matches
 	 * the functional interface. in this example you will pass the animator method using
 	 * object::method syntax.</p>
 	 */
 	public void registerMouseEvents() {
-		addEventHandler(MouseEvent.MOUSE_DRAGGED, animator::mouseDragged);
-		addEventHandler(MouseEvent.MOUSE_MOVED, animator::mouseMoved);
+		removeMouseEvents();
+		mouseDragged = e -> {
+			if (!dragShape(e)) {
+				animator.mouseDragged(e);
+			}
+		};
+		mouseMoved = animator::mouseMoved;
+		mouseClicked = e -> {
+			if (!shapeMoved) {
+				animator.mouseClicked(e);
+			}
+		};
+		addEventHandler(MouseEvent.MOUSE_DRAGGED, mouseDragged);
+		addEventHandler(MouseEvent.MOUSE_MOVED, mouseMoved);
+		addEventHandler(MouseEvent.MOUSE_CLICKED, mouseClicked);
 	}
 
 	/**
@@ -198,14 +416,58 @@ public class CanvasMap implements CanvasMapInterface {
 	 * {@link MouseEvent#MOUSE_MOVED} or {@link MouseEvent#MOUSE_DRAGGED}.<br>
 	 * call {@link CanvasMap#removeEventHandler } twice and pass to it
 	 * {@link MouseEvent#MOUSE_DRAGGED}, {@link animator#mouseDragged} and
-	 * {@link MouseEvent#MOUSE_MOVED}, {@link animator#mouseMoved}.</p>
+	 * {@link MouseEvent#MOUSE_MOVED}, {@link animator#mouseMoved}.
+	 * {@link MouseEvent#MOUSE_CLICKED} is removed from {@link animator#mouseClicked}.</p>
 	 * <p>a method can be passed directly as an argument if the method signature matches
 	 * the functional interface. in this example you will pass the animator method using
 	 * object::method syntax.</p>
 	 */
 	public void removeMouseEvents() {
-		removeEventHandler(MouseEvent.MOUSE_DRAGGED, animator::mouseDragged);
-		removeEventHandler(MouseEvent.MOUSE_MOVED, animator::mouseMoved);
+		if (mouseDragged == null) {
+			return;
+		}
+		removeEventHandler(MouseEvent.MOUSE_DRAGGED, mouseDragged);
+		removeEventHandler(MouseEvent.MOUSE_MOVED, mouseMoved);
+		removeEventHandler(MouseEvent.MOUSE_CLICKED, mouseClicked);
+		mouseDragged = mouseMoved = mouseClicked = null;
+	}
+
+	/**
+	 * pick the top most shape under the mouse when the primary button is pressed. the shape is then
+	 * moved by {@link CanvasMap#dragShape(MouseEvent)}.
+	 * @param e - {@link MouseEvent#MOUSE_PRESSED} event
+	 */
+	private void pressShape(MouseEvent e) {
+		draggedShape = -1;
+		shapeMoved = false;
+		if (!e.isPrimaryButtonDown()) {
+			return;
+		}
+		for (int i = shapes.size() - 1; i >= 0; i--) {
+			if (shapes.get(i).contains(e.getX(), e.getY())) {
+				draggedShape = i;
+				dragX = e.getX();
+				dragY = e.getY();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * move the shape picked by {@link CanvasMap#pressShape(MouseEvent)} with
+	 * {@link CanvasMap#translateShape(int, double, double)} so animators only update the moved shape.
+	 * @param e - {@link MouseEvent#MOUSE_DRAGGED} event
+	 * @return true if a shape is being dragged, false if the drag should move the light
+	 */
+	private boolean dragShape(MouseEvent e) {
+		if (draggedShape < 0) {
+			return false;
+		}
+		translateShape(draggedShape, e.getX() - dragX, e.getY() - dragY);
+		dragX = e.getX();
+		dragY = e.getY();
+		shapeMoved = true;
+		return true;
 	}
 
 	/**
@@ -237,6 +499,7 @@ public class CanvasMap implements CanvasMapInterface {
 	 */
 	public void start() {
 		animator.start();
+		running = true;
 	}
 
 	/**
@@ -245,6 +508,17 @@ public class CanvasMap implements CanvasMapInterface {
 	 */
 	public void stop() {
 		animator.stop();
+		running = false;
+	}
+
+	/**
+	 * stop the animator and release its resources, called when the application exits
+	 */
+	public void release() {
+		if (animator != null) {
+			stop();
+			animator.release();
+		}
 	}
 
 	/**
@@ -283,27 +557,109 @@ public class CanvasMap implements CanvasMapInterface {
 		return board.getWidth();
 	}
 	
+	/**
+	 * get the area of the canvas which changed since the last frame
+	 * @return {@link DirtyRegion} of this map
+	 */
+	@Override
+	public DirtyRegion getDirtyRegion() {
+		return dirty;
+	}
+
+	/**
+	 * mark the whole canvas as changed so the next frame is drawn completely
+	 */
 	@Override
-	public List<PolyShape> shapes() {
+	public void markDirty() {
+		dirty.mark(0, 0, w(), h());
+	}
+
+	/**
+	 * mark the given rectangle of the canvas as changed
+	 * @param x - x coordinate of top left
+	 * @param y - y coordinate of top left
+	 * @param w - width
+	 * @param h - height
+	 */
+	@Override
+	public void markDirty(double x, double y, double w, double h) {
+		dirty.mark(x, y, w, h);
+	}
+
+	/**
+	 * mark the area covered by the given shape as changed. call this before and after the points of
+	 * a shape on the map are edited so both the old and the new area are drawn again.
+	 * @param shape - shape to mark
+	 */
+	@Override
+	public void markDirty(PolyShape shape) {
+		shapesVersion++;
+		// grown by stroke width and by radius of the corner dots drawn on top
+		dirty.mark(shape.getBounds(), Math.max(shape.getDrawable().getWidth(), 6));
+	}
+
+	/**
+	 * move the shape at given index and record it in {@link CanvasMap#getShapeChanges()}. the area of
+	 * the shape before and after the move is marked as dirty.
+	 * @param index - index of shape in {@link CanvasMap#shapes()}
+	 * @param dx - amount to move in x direction
+	 * @param dy - amount to move in y direction
+	 */
+	@Override
+	public void translateShape(int index, double dx, double dy) {
+		PolyShape shape = shapes.get(index);
+		markDirty(shape);
+		shape.translate(dx, dy);
+		markDirty(shape);
+		changes.moved(index);
+	}
+
+	@Override
+	public ShapeChanges getShapeChanges() {
+		return changes;
+	}
+
+	@Override
+	public long getShapesVersion() {
+		return shapesVersion;
+	}
+
+	@Override
+	public ObservableList<PolyShape> shapes() {
 		return shapes;
 	}
+
+	@Override
+	public ObservableList<Vector2D> lights() {
+		return lights;
+	}
 	
 	@Override
 	public void addSampleShapes() {
+		shapes.addAll(createSampleShapes());
+	}
+
+	/**
+	 * create the three sample shapes used by {@link CanvasMap#addSampleShapes()}. this method does not
+	 * need a {@link Canvas} so it can be used without JavaFX running.
+	 * @return list of sample shapes
+	 */
+	public static List<PolyShape> createSampleShapes() {
+		List<PolyShape> samples = new ArrayList<>(3);
 		PolyShape shape1 = new PolyShape();
 		shape1.setPoints(300, 250, 50, 70, 150, 170);
 		shape1.getDrawable().setFill(Color.TEAL).setStroke(Color.BLACK).setWidth(5);
-		shapes.add(shape1);
+		samples.add(shape1);
 		
 		PolyShape shape2 = new PolyShape();
 		shape2.setPoints(30, 40, 400, 60, 90, 80);
 		shape2.getDrawable().setFill(Color.PALEGREEN).setStroke(Color.BLACK).setWidth(3);
-		shapes.add(shape2);
+		samples.add(shape2);
 		
 		PolyShape shape3 = new PolyShape();
 		shape3.setPoints(350, 200, 475, 110, 130, 500);
 		shape3.getDrawable().setFill(Color.TOMATO).setStroke(Color.BLACK).setWidth(4);
-		shapes.add(shape3);
-		
+		samples.add(shape3);
+		return samples;
 	}
 }
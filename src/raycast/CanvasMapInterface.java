@@ -1,13 +1,19 @@
 package raycast;
 
-import java.util.List;
-
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.collections.ObservableList;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import raycast.animator.AbstractAnimator;
+import raycast.engine.Acceleration;
+import raycast.engine.AdaptiveRayBudget;
+import raycast.engine.ShapeChanges;
+import raycast.entity.geometry.DirtyRegion;
 import raycast.entity.geometry.PolyShape;
+import utility.Vector2D;
 
 public interface CanvasMapInterface {
 	
@@ -22,6 +28,61 @@ public interface CanvasMapInterface {
 	 * @return value stored inside property.
 	 */
 	public boolean getDrawFPS();
+
+	/**
+	 * return the property value
+	 * @return value when implemented should not return null, unless specified as not needed for lab.
+	 */
+	public BooleanProperty drawProfilerProperty();
+
+	/**
+	 * return the value in the property. you can use the get method.
+	 * @return value stored inside property.
+	 */
+	public boolean getDrawProfiler();
+
+	/**
+	 * return the property value
+	 * @return value when implemented should not return null, unless specified as not needed for lab.
+	 */
+	public BooleanProperty coherentRaysProperty();
+
+	/**
+	 * return the value in the property. you can use the get method.
+	 * @return value stored inside property.
+	 */
+	public boolean getCoherentRays();
+
+	/**
+	 * return the property value
+	 * @return value when implemented should not return null, unless specified as not needed for lab.
+	 */
+	public BooleanProperty adaptiveRaysProperty();
+
+	/**
+	 * return the value in the property. you can use the get method.
+	 * @return value stored inside property.
+	 */
+	public boolean getAdaptiveRays();
+
+	/**
+	 * get the budget which chooses the number of rays when {@link CanvasMapInterface#getAdaptiveRays()} is on
+	 * @return budget of the map
+	 */
+	public AdaptiveRayBudget getRayBudget();
+
+	/**
+	 * get the number of rays ray animators cast, the ray count or the count chosen by the budget when
+	 * {@link CanvasMapInterface#getAdaptiveRays()} is on
+	 * @return read only property of the count
+	 */
+	public ReadOnlyIntegerProperty castRaysProperty();
+
+	/**
+	 * return the value in the property. you can use the get method.
+	 * @return value stored inside property.
+	 */
+	public int getCastRays();
 	
 	/**
 	 * return the property value
@@ -96,9 +157,34 @@ public interface CanvasMapInterface {
 	public int getRayCount();
 
 	/**
-	 * set an {@link AbstractAnimator}. if an animator exists {@link CanvasMap#stop()} it and 
-	 * {@link CanvasMap#removeMouseEvents()} registered events. then set the new animator and
-	 * call {@link CanvasMap#start()} and {@link CanvasMap#registerMouseEvents()}.
+	 * return the property value
+	 * @return value when implemented should not return null.
+	 */
+	public IntegerProperty parallelismProperty();
+
+	/**
+	 * return the value in the property. you can use the get method.
+	 * @return value stored inside property.
+	 */
+	public int getParallelism();
+
+	/**
+	 * return the property value
+	 * @return value when implemented should not return null.
+	 */
+	public ObjectProperty<Acceleration> accelerationProperty();
+
+	/**
+	 * return the value in the property. you can use the get method.
+	 * @return value stored inside property.
+	 */
+	public Acceleration getAcceleration();
+
+	/**
+	 * set an {@link AbstractAnimator}. if an animator exists {@link CanvasMap#stop()} it,
+	 * {@link CanvasMap#removeMouseEvents()} registered events and {@link AbstractAnimator#release()} it.
+	 * then set the new animator and call {@link CanvasMap#start()} if the old one was running and
+	 * {@link CanvasMap#registerMouseEvents()}. setting the current animator again does nothing.
 	 * @param newAnimator - new {@link AbstractAnimator} object 
 	 * @return the current instance of this object
 	 */
@@ -114,6 +200,11 @@ public interface CanvasMapInterface {
 	 */
 	public void stop();
 
+	/**
+	 * stop the animator and release its resources
+	 */
+	public void release();
+
 	/**
 	 * get the JavaFX {@link Canvas} node 
 	 * @return {@link Canvas} node 
@@ -139,10 +230,58 @@ public interface CanvasMapInterface {
 	public double w();
 
 	/**
-	 * get the list of all shapes.
+	 * get the area of the canvas changed since the last frame
+	 * @return dirty region
+	 */
+	public DirtyRegion getDirtyRegion();
+
+	/**
+	 * mark the whole canvas as changed
+	 */
+	public void markDirty();
+
+	/**
+	 * mark the given rectangle of the canvas as changed
+	 */
+	public void markDirty( double x, double y, double w, double h);
+
+	/**
+	 * mark the area covered by the given shape as changed
+	 */
+	public void markDirty( PolyShape shape);
+
+	/**
+	 * move a shape and record the move so animators only need to update what has moved
+	 * @param index - index of shape
+	 * @param dx - amount to move in x direction
+	 * @param dy - amount to move in y direction
+	 */
+	public void translateShape( int index, double dx, double dy);
+
+	/**
+	 * get the shapes moved since the last frame
+	 * @return changes of shapes
+	 */
+	public ShapeChanges getShapeChanges();
+
+	/**
+	 * get a number which changes every time shapes are added, removed or marked as edited
+	 * @return version of shapes
+	 */
+	public long getShapesVersion();
+
+	/**
+	 * get the list of all shapes. the list can be observed for changes.
 	 * @return list of shapes
 	 */
-	public List< PolyShape> shapes();
+	public ObservableList< PolyShape> shapes();
+
+	/**
+	 * get the list of fixed light sources used by animators which draw more than one light.
+	 * changes to the list mark the whole canvas as dirty.
+	 * @return list of light positions
+	 */
+	public ObservableList< Vector2D> lights();
 
 	/**
 	 * load a set of sample {@link PolyShapes}
@@ -1,19 +1,26 @@
 package raycast;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import javafx.application.Application;
+import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.Menu;
 import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.ToolBar;
 import javafx.scene.input.KeyCode;
@@ -24,11 +31,20 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.Priority;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import raycast.animator.AbstractAnimator;
+import raycast.animator.MultiLightAnimator;
 import raycast.animator.MultiRayAnimator;
+import raycast.animator.PipelinedRayAnimator;
 import raycast.animator.StaticShapes;
 import raycast.animator.TextAnimator;
+import raycast.animator.VisibilityPolygonAnimator;
+import raycast.engine.Acceleration;
+import raycast.scene.SceneFile;
+import raycast.scene.SceneGenerator;
+import raycast.scene.SceneGenerator.Layout;
+import raycast.scene.SceneReader;
 
 /**
  * this is the start of JavaFX application. this class must extend {@link Application}.
@@ -41,6 +57,15 @@ import raycast.animator.TextAnimator;
  */
 public class RayCast extends Application {
 
+	/**
+	 * seed of scenes generated from the scene menu
+	 */
+	public static final long SCENE_SEED = 42;
+	/**
+	 * number of shapes offered for every layout in the scene menu
+	 */
+	private static final int[] SCENE_SIZES = { 100, 1000, 10000, 100000 };
+
 	/**
 	 * size of the scene
 	 */
@@ -117,7 +142,8 @@ public class RayCast extends Application {
 	public void init() throws Exception {
 		// Initialize the animators with FXCollections.observableArrayList and pass to
 		// it a new TextAnimator
-		animators = FXCollections.observableArrayList(new TextAnimator(), new StaticShapes(), new MultiRayAnimator());
+		animators = FXCollections.observableArrayList(new TextAnimator(), new StaticShapes(), new MultiRayAnimator(),
+				new VisibilityPolygonAnimator(), new MultiLightAnimator(), new PipelinedRayAnimator());
 		// initialize the board object
 		board = new CanvasMap();
 		// create two ToolBar objects and store createStatusBar() and createOptionsBar()
@@ -189,7 +215,7 @@ public class RayCast extends Application {
 	 */
 	@Override
 	public void stop() throws Exception {
-		board.stop();
+		board.release();
 	}
 
 	/**
@@ -201,6 +227,10 @@ public class RayCast extends Application {
 		//use the createButton method and create a stop button with lambda that calls board.stop()
 		Button startButton = createButton("Start", e -> board.start());
 		Button stopButton = createButton("Stop", e -> board.stop());
+		//create an open button which replaces the shapes with the shapes of a scene file
+		Button openButton = createButton("Open", e -> openScene());
+		//create a menu which replaces the shapes with a generated scene of the size of the canvas
+		MenuButton sceneMenu = createSceneMenu();
 		//create 2 Pane object called filler1 and filler2
 		//Pane class is a super class of all layout mangers. by itself it has no rules.
 		Pane filler1 = new Pane();
@@ -220,6 +250,15 @@ public class RayCast extends Application {
 		rayCount.setEditable(true);
 		rayCount.setMaxWidth(100);
 		board.rayCountProperty().bind(rayCount.valueProperty());
+		//create a Spinner for number of threads used to cast rays, from 1 up to twice the number of cores.
+		Spinner<Integer> parallelism = new Spinner<Integer>(1, Runtime.getRuntime().availableProcessors() * 2, 1);
+		parallelism.setEditable(true);
+		parallelism.setMaxWidth(60);
+		board.parallelismProperty().bind(parallelism.valueProperty());
+		//create a ChoiceBox with all Acceleration values to select how the closest hit of each ray is found.
+		ChoiceBox<Acceleration> accelerationBox = new ChoiceBox<>(FXCollections.observableArrayList(Acceleration.values()));
+		accelerationBox.getSelectionModel().select(board.getAcceleration());
+		board.accelerationProperty().bind(accelerationBox.valueProperty());
 		//create a MenuButton with argument "Options", null and all of created CheckMenuItem.
 		//call createCheckMenuItem 6 times and use following names:
 		//FPS, Intersects, Lights, Joints, Bounds, Sectors
@@ -230,7 +269,10 @@ public class RayCast extends Application {
 				createCheckMenuItem("Lights", false, board.drawLightSourceProperty()),
 				createCheckMenuItem("Joints", false, board.drawShapeJointsProperty()),
 				createCheckMenuItem("Bounds", false, board.drawBoundsProperty()),
-				createCheckMenuItem("Sectors", false, board.drawSectorsProperty()));
+				createCheckMenuItem("Sectors", false, board.drawSectorsProperty()),
+				createCheckMenuItem("Profiler", false, board.drawProfilerProperty()),
+				createCheckMenuItem("Skip unchanged casts", false, board.coherentRaysProperty()),
+				createCheckMenuItem("Adaptive rays", false, board.adaptiveRaysProperty()));
 		//Initialize animatorsBox with the animators list
 		//call getSelectionModel on animatorsBox then call selectedItemProperty and then call addListener.
 		//finally as argument for addListener pass a lambda that sets the new animator for CanvasMap.
@@ -248,11 +290,56 @@ public class RayCast extends Application {
 		// startButton, stopButton, filler1, rayCount, 
 		// options, filler2, new Label( "Animators "), animatorsBox
 		// return the created ToolBar
-		ToolBar optionsBar = new ToolBar(startButton, stopButton, filler1, rayCount, options, filler2,
-				new Label("Animators"), animatorsBox);
+		ToolBar optionsBar = new ToolBar(startButton, stopButton, openButton, sceneMenu, filler1, rayCount, new Label("Threads"), parallelism,
+				accelerationBox, options, filler2, new Label("Animators"), animatorsBox);
 		return optionsBar;
 	}
 
+	/**
+	 * create a {@link MenuButton} with a {@link Menu} for every {@link Layout} of {@link SceneGenerator},
+	 * each with a few scene sizes. the seed is always {@link RayCast#SCENE_SEED} so the same scene can be
+	 * generated again. the last item puts back the sample shapes.
+	 * @return customized {@link MenuButton}
+	 */
+	public MenuButton createSceneMenu() {
+		MenuButton sceneMenu = new MenuButton("Scene");
+		for (Layout layout : Layout.values()) {
+			Menu menu = new Menu(layout.toString());
+			for (int count : SCENE_SIZES) {
+				MenuItem item = new MenuItem(count + " shapes");
+				item.setOnAction(e -> board.shapes()
+						.setAll(SceneGenerator.generate(layout, count, board.w(), board.h(), SCENE_SEED)));
+				menu.getItems().add(item);
+			}
+			sceneMenu.getItems().add(menu);
+		}
+		MenuItem sample = new MenuItem("Sample");
+		sample.setOnAction(e -> board.shapes().setAll(CanvasMap.createSampleShapes()));
+		sceneMenu.getItems().add(sample);
+		return sceneMenu;
+	}
+
+	/**
+	 * ask for a scene file and replace all shapes on the map with the shapes in it.
+	 * any format supported by {@link SceneReader} can be opened.
+	 */
+	public void openScene() {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Open scene");
+		chooser.getExtensionFilters().addAll(
+				new FileChooser.ExtensionFilter("Scenes", "*" + SceneFile.EXTENSION, "*.json", "*.txt"),
+				new FileChooser.ExtensionFilter("All files", "*.*"));
+		File file = chooser.showOpenDialog(board.getCanvas().getScene().getWindow());
+		if (file == null) {
+			return;
+		}
+		try {
+			board.shapes().setAll(SceneReader.read(file.toPath()));
+		} catch (IOException e) {
+			new Alert(AlertType.ERROR, "could not open " + file.getName() + ": " + e.getMessage()).showAndWait();
+		}
+	}
+
 	/**
 	 * create a {@link ToolBar} that will represent the status bar of the application.
 	 * @return customized {@link ToolBar}
@@ -279,7 +366,17 @@ public class RayCast extends Application {
 		// create a new ToolBar and as arguments of its constructor pass the create labels to it.
 		// there should be 4 labels: new Label( "Mouse: "), mouseCoordLabel, new Label( "Drag: "), dragCoordLabel
 		// return the created ToolBar
-		ToolBar statusBar = new ToolBar(new Label("Mouse: "), mouseCoordLabel, new Label("Drag: "), dragCoordLabel);
+		// frame time budget of adaptive rays and the number of rays cast, the count chosen by the budget
+		// when "Adaptive rays" is on, never above the ray count in the options bar.
+		Spinner<Double> budget = new Spinner<Double>(1, 100, board.getRayBudget().getBudgetMillis(), 1);
+		board.getRayBudget().budgetMillisProperty().bind(budget.valueProperty());
+		Label budgetLabel = new Label();
+		budgetLabel.textProperty().bind(Bindings.format("%d rays, %.0f%% headroom",
+				board.castRaysProperty(), board.getRayBudget().headroomProperty().multiply(100)));
+		Pane filler = new Pane();
+		HBox.setHgrow(filler, Priority.ALWAYS);
+		ToolBar statusBar = new ToolBar(new Label("Mouse: "), mouseCoordLabel, new Label("Drag: "), dragCoordLabel,
+				filler, new Label("Budget ms"), budget, budgetLabel);
 		return statusBar;
 	}
 
@@ -6,8 +6,11 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import raycast.CanvasMap;
 import raycast.entity.FpsCounter;
+import raycast.entity.FrameProfiler;
+import raycast.entity.FrameProfiler.Phase;
+import raycast.entity.geometry.DirtyRegion;
 import raycast.entity.geometry.PolyShape;
-import utility.Point;
+import utility.Vector2D;
 
 /**
  * this class must extend {@link AnimationTimer}. job of this class is to hold
@@ -23,20 +26,29 @@ public abstract class AbstractAnimator extends AnimationTimer {
 	 */
 	protected CanvasMap map;
 	/**
-	 * create a protected class variable of type {@link Point} and name it mouse.
+	 * create a protected class variable of type {@link Vector2D} and name it mouse.
+	 * it is read every frame so it is not backed by any property.
 	 */
-	protected Point mouse;
+	protected Vector2D mouse;
 
 	private FpsCounter fps;
 
+	/**
+	 * time of each phase of the last frames, subclasses call {@link FrameProfiler#mark(Phase)}
+	 * after each phase in {@link AbstractAnimator#handle(GraphicsContext, long)}.
+	 */
+	protected FrameProfiler profiler;
+
 	/**
 	 * create a protected constructor and initialize the
 	 * {@link AbstractAnimator#mouse} variable
 	 */
 	protected AbstractAnimator() {
-		mouse = new Point();
+		mouse = new Vector2D();
 		fps = new FpsCounter(1, 25);
 		fps.getDrawable().setFill(Color.RED).setStroke(Color.BLACK).setWidth(1);
+		profiler = new FrameProfiler(240).setPos(5, 70);
+		profiler.getDrawable().setFill(Color.BLACK);
 	}
 
 	/**
@@ -48,6 +60,22 @@ public abstract class AbstractAnimator extends AnimationTimer {
 		this.map = map;
 	}
 
+	/**
+	 * release resources such as threads held by this animator. called by {@link CanvasMap} after the
+	 * animator is stopped and replaced, it must be able to start again later and create them anew.
+	 * does nothing by default.
+	 */
+	public void release() {
+	}
+
+	/**
+	 * get the profiler which holds the time of each phase of the last frames drawn by this animator
+	 * @return {@link FrameProfiler} of this animator
+	 */
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+
 	/**
 	 * create a method called mouseDragged that is called every time the position of
 	 * mouse changes.
@@ -56,7 +84,7 @@ public abstract class AbstractAnimator extends AnimationTimer {
 	 *          {@link MouseEvent#getX} and {@link MouseEvent#getY}
 	 */
 	public void mouseDragged(MouseEvent e) {
-		mouse.set(e.getX(), e.getY());
+		mouseMoved(e.getX(), e.getY());
 	}
 
 	/**
@@ -67,14 +95,55 @@ public abstract class AbstractAnimator extends AnimationTimer {
 	 *          {@link MouseEvent#getX} and {@link MouseEvent#getY}
 	 */
 	public void mouseMoved(MouseEvent e) {
-		mouse.move(e.getX(), e.getY());
-		mouse.set(e.getX(), e.getY());
+		mouseMoved(e.getX(), e.getY());
+	}
+
+	/**
+	 * called every time a mouse button is clicked on the canvas. does nothing by default.
+	 * 
+	 * @param e - {@link MouseEvent} object that hold the details of the mouse.
+	 */
+	public void mouseClicked(MouseEvent e) {
 	}
 
+	private void mouseMoved(double x, double y) {
+		double oldX = mouse.x(), oldY = mouse.y();
+		mouse.set(x, y);
+		markMouseDirty(oldX, oldY);
+	}
+
+	/**
+	 * mark the area which needs to be drawn again after the mouse has moved. by default the whole canvas
+	 * is marked as most animators draw relative to the mouse. animators which only draw the light source
+	 * at the mouse should override this and mark less.
+	 * @param oldX - x of mouse before it moved, new position is in {@link AbstractAnimator#mouse}
+	 * @param oldY - y of mouse before it moved
+	 */
+	protected void markMouseDirty(double oldX, double oldY) {
+		map.markDirty();
+	}
+
+	/**
+	 * mark the area of the light source dot drawn at given position
+	 * @param x - x of light source
+	 * @param y - y of light source
+	 */
+	protected void markLightSource(double x, double y) {
+		map.markDirty(x - 6, y - 6, 12, 12);
+	}
+
+	/**
+	 * clear and fill the dirty region of the canvas with the given background. the rest of the canvas
+	 * is kept as drawn in previous frames.
+	 * @param gc - {@link GraphicsContext} object.
+	 * @param background - color to fill with
+	 */
 	public void clearAndFill(GraphicsContext gc, Color background) {
+		DirtyRegion dirty = map.getDirtyRegion();
 		gc.setFill(background);
-		gc.clearRect(0, 0, map.w(), map.h());
-		gc.fillRect(0, 0, map.w(), map.h());
+		gc.clearRect(dirty.x(), dirty.y(), dirty.w(), dirty.h());
+		gc.fillRect(dirty.x(), dirty.y(), dirty.w(), dirty.h());
+		profiler.mark(Phase.CLEAR);
 	}
 
 	/**
@@ -88,6 +157,11 @@ public abstract class AbstractAnimator extends AnimationTimer {
 	 * {@link AbstractAnimator#handle(GraphicsContext, long)}.
 	 * {@link GraphicsContext} can be retrieved from {@link CanvasMap#gc()}
 	 * </p>
+	 * <p>
+	 * nothing is drawn if no part of the canvas is marked in {@link CanvasMap#getDirtyRegion()}, otherwise
+	 * drawing is clipped to the marked region and the region and {@link CanvasMap#getShapeChanges()} are
+	 * cleared afterwards.
+	 * </p>
 	 * 
 	 * @param now - current time in nanoseconds, represents the time that this
 	 *            function is called.
@@ -95,10 +169,27 @@ public abstract class AbstractAnimator extends AnimationTimer {
 	public void handle(long now) {
 		GraphicsContext gc = map.gc();
 
-		if (map.getDrawFPS())
-			fps.calculateFPS(now);
+		if (map.getDrawFPS() && fps.calculateFPS(now))
+			fps.markDirty(map.getDirtyRegion());
+		if (map.getDrawProfiler() && profiler.updateDisplay(now))
+			profiler.markDirty(map.getDirtyRegion());
+
+		DirtyRegion dirty = map.getDirtyRegion();
+		if (!dirty.isDirty())
+			return;
 
-		handle(map.gc(), now);
+		fps.countFrame();
+		profiler.beginFrame();
+		gc.save();
+		// clipping has a cost of its own, skip it when the whole canvas is drawn anyway
+		if (!dirty.covers(map.w(), map.h())) {
+			gc.beginPath();
+			gc.rect(dirty.x(), dirty.y(), dirty.w(), dirty.h());
+			gc.clip();
+			gc.beginPath();
+		}
+		handle(gc, now);
+		profiler.mark(Phase.DRAW);
 		if (map.getDrawLightSource()) {
 			gc.setFill(Color.MAGENTA);
 			gc.fillOval(mouse.x() - 5, mouse.y() - 5, 10, 10);
@@ -117,6 +208,14 @@ public abstract class AbstractAnimator extends AnimationTimer {
 		if (map.getDrawFPS()) {
 			fps.getDrawable().draw(gc);
 		}
+		if (map.getDrawProfiler()) {
+			profiler.getDrawable().draw(gc);
+		}
+		gc.restore();
+		dirty.clear();
+		map.getShapeChanges().clear();
+		profiler.mark(Phase.OVERLAY);
+		profiler.endFrame();
 	}
 
 	/**
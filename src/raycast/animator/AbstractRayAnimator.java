@@ -0,0 +1,159 @@
+package raycast.animator;
+
+import javafx.collections.ListChangeListener;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import raycast.CanvasMap;
+import raycast.engine.HitBuffer;
+import raycast.engine.RayCaster;
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * this class holds the common functionality of animators which cast rays. it keeps a {@link RayCaster}
+ * in sync with the options of {@link CanvasMap}.
+ */
+public abstract class AbstractRayAnimator extends AbstractAnimator {
+
+	/**
+	 * the {@link RayCaster} used by subclasses, call {@link AbstractRayAnimator#updateCaster()} once
+	 * every frame before using it.
+	 */
+	protected RayCaster caster = new RayCaster();
+
+	/**
+	 * {@link CanvasMap#getShapesVersion()} of the last frame, see {@link AbstractRayAnimator#markShapesChanged()}
+	 */
+	private long shapesVersion = -1;
+
+	/**
+	 * use the {@link CanvasMap#getAcceleration()} selected for the map and rebuild it every time
+	 * shapes are added or removed. ray directions are computed again only when the ray count changes.
+	 */
+	@Override
+	public void setCanvas(CanvasMap map) {
+		super.setCanvas(map);
+		caster.setAccelerator(map.getAcceleration().create());
+		map.accelerationProperty().addListener((observable, oldValue, newValue) -> {
+			caster.setAccelerator(newValue.create());
+		});
+		map.shapes().addListener((ListChangeListener<PolyShape>) change -> caster.invalidate());
+		map.rayCountProperty().addListener((observable, oldValue, newValue) -> {
+			caster.getDirections().invalidate();
+		});
+	}
+
+	/**
+	 * release the threads of the caster, they are created again on the next parallel cast
+	 */
+	@Override
+	public void release() {
+		caster.shutdown();
+	}
+
+	/**
+	 * mark the whole canvas if the shapes changed since the last frame, then draw as usual.
+	 */
+	@Override
+	public void handle(long now) {
+		markShapesChanged();
+		super.handle(now);
+	}
+
+	/**
+	 * mark the whole canvas if shapes were added, removed, moved or edited since the last call. the map only
+	 * marks the bounds of the changed shapes, but rays and shadows reach from the shapes to the edge of the
+	 * canvas and would stay stale outside of them.
+	 */
+	protected void markShapesChanged() {
+		if (shapesVersion != map.getShapesVersion()) {
+			shapesVersion = map.getShapesVersion();
+			map.markDirty();
+		}
+	}
+
+	/**
+	 * pass the current size, number of threads and coherence of the map to the caster, update the shapes moved
+	 * since the last frame and build the accelerator if shapes were added or removed.
+	 */
+	protected void updateCaster() {
+		caster.setArea(map.w(), map.h());
+		caster.setParallelism(map.getParallelism());
+		caster.setCoherent(map.getCoherentRays());
+		caster.update(map.shapes(), map.getShapeChanges());
+	}
+
+	/**
+	 * get the number of rays to cast this frame, {@link CanvasMap#getRayCount()} or the count chosen by
+	 * {@link CanvasMap#getRayBudget()} if adaptive rays are on.
+	 * @return number of rays
+	 */
+	protected int rayCount() {
+		return map.getCastRays();
+	}
+
+	/**
+	 * pass the time spent to cast and draw the rays of a frame to {@link CanvasMap#getRayBudget()} if
+	 * adaptive rays are on
+	 * @param rays - number of rays cast, from {@link AbstractRayAnimator#rayCount()}
+	 * @param nanos - time spent in nanoseconds
+	 */
+	protected void addRayCost(int rays, long nanos) {
+		if (map.getAdaptiveRays()) {
+			map.getRayBudget().update(rays, nanos, map.getRayCount());
+		}
+	}
+
+	/**
+	 * draw the rays stored in given {@link HitBuffer}. all rays are added to one path which is stroked once,
+	 * so the number of draw calls does not grow with the number of rays.
+	 * @param gc - {@link GraphicsContext} object.
+	 * @param hits - end points of the rays
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param color - color of the rays
+	 */
+	protected void drawRays(GraphicsContext gc, HitBuffer hits, double startX, double startY, Color color) {
+		gc.setLineWidth(1);
+		gc.setStroke(color);
+		gc.beginPath();
+		for (int i = 0; i < hits.size(); i++) {
+			gc.moveTo(startX, startY);
+			gc.lineTo(hits.x(i), hits.y(i));
+		}
+		gc.stroke();
+		if (map.getDrawIntersectPoint()) {
+			fillDots(gc, hits.xs(), hits.ys(), hits.size());
+		}
+	}
+
+	/**
+	 * fill the area lit by the rays stored in given {@link HitBuffer}. rays are in order of their angle so
+	 * the end points are the corners of one polygon around the light source, which covers the same area as
+	 * a triangle between every two rays next to each other. it is filled with one call no matter how many
+	 * rays there are.
+	 * @param gc - {@link GraphicsContext} object.
+	 * @param hits - end points of the rays
+	 * @param color - color of the lit area
+	 */
+	protected void fillSectors(GraphicsContext gc, HitBuffer hits, Color color) {
+		gc.setFill(color);
+		gc.fillPolygon(hits.xs(), hits.ys(), hits.size());
+	}
+
+	/**
+	 * draw a dot at each of the given points. all dots are added to one path which is filled once.
+	 * @param gc - {@link GraphicsContext} object.
+	 * @param xs - x of points
+	 * @param ys - y of points
+	 * @param count - number of points to draw
+	 */
+	protected void fillDots(GraphicsContext gc, double[] xs, double[] ys, int count) {
+		gc.setFill(Color.MAGENTA);
+		gc.beginPath();
+		for (int i = 0; i < count; i++) {
+			gc.moveTo(xs[i] + 5, ys[i]);
+			gc.arc(xs[i], ys[i], 5, 5, 0, 360);
+		}
+		gc.fill();
+	}
+}
@@ -0,0 +1,217 @@
+package raycast.animator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.BlendMode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import raycast.CanvasMap;
+import raycast.engine.Acceleration;
+import raycast.engine.RayAccelerator;
+import raycast.engine.VisibilityPolygon;
+import raycast.entity.FrameProfiler.Phase;
+import raycast.entity.geometry.PolyShape;
+import utility.Vector2D;
+
+/**
+ * <p>
+ * this animator draws the visibility polygon of every light in {@link CanvasMap#lights()} plus one at the
+ * mouse. the polygons are added on top of each other with {@link BlendMode#ADD} so areas seen by more lights
+ * are brighter. left click adds a light at the mouse, right click removes the last one.
+ * </p>
+ * <p>
+ * all lights share the edges and accelerator of one {@link AbstractRayAnimator#caster}, it is built once per
+ * frame no matter how many lights there are. the lights are computed in parallel with
+ * {@link raycast.engine.RayCaster#forEach}, each into its own {@link VisibilityPolygon}. a polygon is kept
+ * until its light moves or the edges change, so a frame in which only the mouse moves computes one polygon.
+ * </p>
+ * <p>
+ * accelerators which cull for one prepared light, such as sector culling, can not be shared by lights
+ * computed at the same time. see {@link RayAccelerator#isPreparedPerLight()}. each thread then builds its own
+ * over the edges of the caster and prepares it for every light it computes.
+ * </p>
+ */
+public class MultiLightAnimator extends AbstractRayAnimator {
+
+	/**
+	 * number of lights computed by one task when computing in parallel
+	 */
+	private static final int TASK_SIZE = 1;
+
+	private VisibilityPolygon[] polygons = new VisibilityPolygon[0];
+	private double[] lightX = new double[0], lightY = new double[0];
+	/**
+	 * {@link raycast.engine.RayCaster#getVersion()} each polygon was computed with, -1 if it must be computed
+	 */
+	private long[] computedVersion = new long[0];
+	/**
+	 * lights whose polygon was computed in the current frame, only their rays are counted as work
+	 */
+	private boolean[] computed = new boolean[0];
+	private double areaWidth, areaHeight;
+	/**
+	 * accelerator of each thread computing lights if the one of the caster must be prepared per light,
+	 * built for {@link MultiLightAnimator#threadVersion}
+	 */
+	private ThreadLocal<RayAccelerator> threadAccelerators;
+	/**
+	 * all accelerators in {@link MultiLightAnimator#threadAccelerators}, to sum their edge tests
+	 */
+	private List<RayAccelerator> threadBuilt = new CopyOnWriteArrayList<>();
+	private long threadVersion = -1;
+	private Acceleration threadAcceleration;
+
+	@Override
+	protected void handle(GraphicsContext gc, long now) {
+		clearAndFill(gc, Color.BLACK);
+
+		updateCaster();
+		int count = setLights(map.lights());
+		long version = caster.getVersion();
+		boolean preparedPerLight = caster.getAccelerator().isPreparedPerLight();
+		if (preparedPerLight && threadVersion != version) {
+			threadBuilt.clear();
+			threadAcceleration = map.getAcceleration();
+			threadAccelerators = ThreadLocal.withInitial(this::buildThreadAccelerator);
+			threadVersion = version;
+		}
+		caster.forEach(count, TASK_SIZE, i -> {
+			computed[i] = computedVersion[i] != version;
+			if (computed[i]) {
+				RayAccelerator accelerator = caster.getAccelerator();
+				if (preparedPerLight) {
+					accelerator = threadAccelerators.get();
+					accelerator.prepare(lightX[i], lightY[i]);
+				}
+				polygons[i].compute(accelerator, caster.getEdges(), lightX[i], lightY[i], areaWidth, areaHeight);
+				computedVersion[i] = version;
+			}
+		});
+		long rayCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (computed[i]) {
+				rayCount += polygons[i].rayCount();
+			}
+		}
+		long edgeTests = caster.getAccelerator().sumEdgeTestsThenReset();
+		for (RayAccelerator accelerator : threadBuilt) {
+			edgeTests += accelerator.sumEdgeTestsThenReset();
+		}
+		profiler.addWork(rayCount, edgeTests);
+		profiler.mark(Phase.COMPUTE);
+
+		gc.save();
+		gc.setGlobalBlendMode(BlendMode.ADD);
+		for (int i = 0; i < count; i++) {
+			gc.setFill(lightColor(i, count));
+			gc.fillPolygon(polygons[i].xs(), polygons[i].ys(), polygons[i].size());
+		}
+		gc.restore();
+
+		for (PolyShape shape : map.shapes()) {
+			shape.getDrawable().draw(gc);
+		}
+		profiler.mark(Phase.SHAPES);
+		if (map.getDrawLightSource()) {
+			gc.setFill(Color.GOLD);
+			for (int i = 0; i < count - 1; i++) {
+				gc.fillOval(lightX[i] - 5, lightY[i] - 5, 10, 10);
+			}
+		}
+		if (map.getDrawIntersectPoint()) {
+			VisibilityPolygon mousePolygon = polygons[count - 1];
+			fillDots(gc, mousePolygon.xs(), mousePolygon.ys(), mousePolygon.size());
+		}
+	}
+
+	/**
+	 * create an accelerator of the selected kind for the calling thread over the edges of the caster
+	 */
+	private RayAccelerator buildThreadAccelerator() {
+		RayAccelerator accelerator = threadAcceleration.create();
+		accelerator.setArea(areaWidth, areaHeight);
+		accelerator.build(caster.getEdges());
+		threadBuilt.add(accelerator);
+		return accelerator;
+	}
+
+	/**
+	 * copy the position of every light and the mouse, which is always last. a polygon is marked to be
+	 * computed again if its light has moved or the area has changed.
+	 * @return number of lights including the mouse
+	 */
+	private int setLights(List<Vector2D> lights) {
+		int count = lights.size() + 1;
+		if (polygons.length < count) {
+			int length = Math.max(count, polygons.length * 2);
+			int old = polygons.length;
+			polygons = Arrays.copyOf(polygons, length);
+			for (int i = old; i < length; i++) {
+				polygons[i] = new VisibilityPolygon();
+			}
+			lightX = Arrays.copyOf(lightX, length);
+			lightY = Arrays.copyOf(lightY, length);
+			computedVersion = Arrays.copyOf(computedVersion, length);
+			computed = Arrays.copyOf(computed, length);
+			Arrays.fill(computedVersion, old, length, -1);
+		}
+		if (areaWidth != map.w() || areaHeight != map.h()) {
+			areaWidth = map.w();
+			areaHeight = map.h();
+			Arrays.fill(computedVersion, -1);
+		}
+		for (int i = 0; i < count; i++) {
+			Vector2D light = i < count - 1 ? lights.get(i) : mouse;
+			if (lightX[i] != light.x() || lightY[i] != light.y()) {
+				lightX[i] = light.x();
+				lightY[i] = light.y();
+				computedVersion[i] = -1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * release the threads of the caster and the accelerators built for them
+	 */
+	@Override
+	public void release() {
+		super.release();
+		threadAccelerators = null;
+		threadBuilt.clear();
+		threadVersion = -1;
+	}
+
+	/**
+	 * every light gets its own hue, dim enough that a few overlapping lights do not saturate.
+	 * the mouse light is white.
+	 */
+	private static Color lightColor(int i, int count) {
+		double brightness = Math.max(0.12, 0.6 / Math.sqrt(count));
+		if (i == count - 1) {
+			return Color.gray(brightness);
+		}
+		return Color.hsb(i * 137.5 % 360, 0.6, brightness);
+	}
+
+	/**
+	 * left click adds a light at the mouse position, right click removes the last light added
+	 */
+	@Override
+	public void mouseClicked(MouseEvent e) {
+		if (e.getButton() == MouseButton.PRIMARY) {
+			map.lights().add(new Vector2D(e.getX(), e.getY()));
+		} else if (e.getButton() == MouseButton.SECONDARY && !map.lights().isEmpty()) {
+			map.lights().remove(map.lights().size() - 1);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Multiple lights";
+	}
+}
@@ -2,31 +2,38 @@ package raycast.animator;
 
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
-import raycast.entity.geometry.PolyShape;
-import utility.IntersectUtil;
+import raycast.engine.HitBuffer;
+import raycast.engine.RayCaster;
+import raycast.entity.FrameProfiler.Phase;
 
-public class MultiRayAnimator extends AbstractAnimator {
+public class MultiRayAnimator extends AbstractRayAnimator {
 
-	private double[] intersectPoint = new double[4];
-	private double[] intersectResult = new double[4];
+	private HitBuffer hits = new HitBuffer();
+	private ShapeLayer layer = new ShapeLayer(Color.ORCHID);
 
 	@Override
 	protected void handle(GraphicsContext gc, long now) {
-		clearAndFill(gc, Color.ORCHID);
-		for (PolyShape shape : map.shapes()) {
-			shape.getDrawable().draw(gc);
+		layer.draw(gc, map);
+		profiler.mark(Phase.SHAPES);
+
+		long start = System.nanoTime();
+		int rays = rayCount();
+		updateCaster();
+		caster.cast(map.shapes(), mouse.x(), mouse.y(), rays, hits);
+		boolean cast = caster.getRaysCast() > 0;
+		profiler.addWork(caster.getRaysCast(), caster.getAccelerator().sumEdgeTestsThenReset());
+		profiler.mark(Phase.COMPUTE);
+		if (map.getDrawSectors()) {
+			fillSectors(gc, hits, Color.GHOSTWHITE);
 		}
-
-		drawRays(gc, mouse.x(), mouse.y(), Color.GHOSTWHITE);
-	}
-
-	public void drawLine(GraphicsContext gc, Color color, double sx, double sy, double ex, double ey) {
-		gc.setLineWidth(1);
-		gc.setStroke(color);
-		gc.setFill(Color.MAGENTA);
-		gc.strokeLine(sx, sy, ex, ey);
-		if (map.getDrawIntersectPoint()) {
-			gc.fillOval(ex - 5, ey - 5, 10, 10);
+		drawRays(gc, mouse.x(), mouse.y(), Color.BLACK);
+		// a skipped cast says nothing about the cost of the rays
+		if (cast) {
+			addRayCost(rays, System.nanoTime() - start);
+		}
+		if (map.getDrawFPS()) {
+			gc.setFill(Color.BLACK);
+			gc.fillText(caster.getAccelerator().toString(), 5, 45);
 		}
 	}
 
@@ -35,30 +42,15 @@ public class MultiRayAnimator extends AbstractAnimator {
 		return this.getClass().getName();
 	}
 
-	public void drawRays(GraphicsContext gc, double startX, double startY, Color lightColor) {
-		double endX, endY;
-		double rayIncrementer = 360d / map.getRayCount();
-
-		for (double rayAngle = 0; rayAngle < 360; rayAngle += rayIncrementer) {
-			endX = Math.cos(Math.toRadians(rayAngle));
-			endY = Math.sin(Math.toRadians(rayAngle));
-
-			intersectPoint[0] = startX + endX * 700;
-			intersectPoint[1] = startY + endY * 700;
-
-			for (PolyShape shape : map.shapes()) {
-
-				for (int i = 0, j = shape.pointCount() - 1; i < shape.pointCount(); i++, j = i - 1) {
-					boolean doesIntersect = IntersectUtil.getIntersection(intersectResult, startX, startY,
-							startX + endX, startY + endY, shape.pX(i), shape.pY(i), shape.pX(j), shape.pY(j));
-					if (doesIntersect && intersectPoint[2] > intersectResult[2]) {
-						System.arraycopy(intersectResult, 0, intersectPoint, 0, intersectPoint.length);
-					}
-				}
-			}
-
-			drawLine(gc, Color.BLACK, startX, startY, intersectPoint[0], intersectPoint[1]);
-			intersectPoint[2] = Double.MAX_VALUE;
-		}
+	/**
+	 * draw the rays stored in the {@link HitBuffer} computed by {@link RayCaster}. all rays are added to
+	 * one path which is stroked once, so the number of draw calls does not grow with the number of rays.
+	 * @param gc - {@link GraphicsContext} object.
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param color - color of the rays
+	 */
+	public void drawRays(GraphicsContext gc, double startX, double startY, Color color) {
+		drawRays(gc, hits, startX, startY, color);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,235 @@
+package raycast.animator;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import raycast.engine.Acceleration;
+import raycast.engine.EdgeBuffer;
+import raycast.engine.HitBuffer;
+import raycast.engine.RayCaster;
+import raycast.entity.FrameProfiler.Phase;
+
+/**
+ * <p>
+ * draws the same rays as {@link MultiRayAnimator} but casts them on a worker thread, so the JavaFX thread
+ * only draws and stays responsive no matter how long a cast takes. the rays drawn are one cast behind the
+ * mouse.
+ * </p>
+ * <p>
+ * every pulse the JavaFX thread posts a {@link Request} with the mouse position, ray count and a snapshot
+ * of the edges, and unparks the worker. the worker casts into its own {@link Frame} and swaps it with the
+ * ready frame, the JavaFX thread swaps the ready frame with the one it draws when a new one is there. the
+ * three frames are exchanged with {@link AtomicReference#getAndSet(Object)} so neither thread waits for the
+ * other. requests which arrive while the worker is busy replace each other, only the latest one is cast.
+ * </p>
+ * <p>
+ * the edges are copied to a new {@link EdgeBuffer} on the JavaFX thread only when
+ * {@link raycast.CanvasMap#getShapesVersion()} changes, the worker never reads the shapes. coherent rays
+ * are not used as every cast goes into a different frame.
+ * </p>
+ */
+public class PipelinedRayAnimator extends AbstractRayAnimator {
+
+	/**
+	 * one cast result, owned by the worker, the JavaFX thread or waiting in between
+	 */
+	private static class Frame {
+		final HitBuffer hits = new HitBuffer();
+		double lightX, lightY;
+		int rayCount;
+		long edgeTests, castNanos;
+		boolean fresh;
+	}
+
+	/**
+	 * everything the worker needs for one cast, never changed after it is posted
+	 */
+	private static class Request {
+		final double lightX, lightY, width, height;
+		final int rayCount, parallelism;
+		final EdgeBuffer edges;
+		final Acceleration acceleration;
+
+		Request(double lightX, double lightY, double width, double height, int rayCount, int parallelism,
+				EdgeBuffer edges, Acceleration acceleration) {
+			this.lightX = lightX;
+			this.lightY = lightY;
+			this.width = width;
+			this.height = height;
+			this.rayCount = rayCount;
+			this.parallelism = parallelism;
+			this.edges = edges;
+			this.acceleration = acceleration;
+		}
+
+		boolean sameAs(Request other) {
+			return other != null && lightX == other.lightX && lightY == other.lightY && width == other.width
+					&& height == other.height && rayCount == other.rayCount && parallelism == other.parallelism
+					&& edges == other.edges && acceleration == other.acceleration;
+		}
+	}
+
+	private ShapeLayer layer = new ShapeLayer(Color.ORCHID);
+
+	private final AtomicReference<Frame> ready = new AtomicReference<>(new Frame());
+	private final AtomicReference<Request> pending = new AtomicReference<>();
+	private Frame front = new Frame();
+
+	private Request posted;
+	private EdgeBuffer snapshot;
+	private long snapshotVersion = -1;
+
+	/**
+	 * the current worker thread, a worker exits as soon as it sees it has been replaced
+	 */
+	private final AtomicReference<Thread> worker = new AtomicReference<>();
+	/**
+	 * error which ended the last worker, drawn on the canvas until the animator is started again
+	 */
+	private volatile Throwable failure;
+	private Throwable shownFailure;
+
+	@Override
+	public void start() {
+		super.start();
+		if (worker.get() == null) {
+			// a failed worker may have dropped the last request, post it again
+			posted = null;
+			failure = null;
+			Thread thread = new Thread(this::work, "ray cast worker");
+			thread.setDaemon(true);
+			worker.set(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * stop drawing and let the worker thread finish its current cast and exit
+	 */
+	@Override
+	public void stop() {
+		super.stop();
+		Thread thread = worker.getAndSet(null);
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			posted = null;
+		}
+	}
+
+	/**
+	 * post a new request if anything it depends on has changed and mark the canvas dirty if the worker
+	 * has finished a frame, then draw as usual.
+	 */
+	@Override
+	public void handle(long now) {
+		if (snapshotVersion != map.getShapesVersion() || snapshot == null) {
+			snapshot = new EdgeBuffer().build(map.shapes());
+			snapshotVersion = map.getShapesVersion();
+		}
+		Request request = new Request(mouse.x(), mouse.y(), map.w(), map.h(), rayCount(),
+				map.getParallelism(), snapshot, map.getAcceleration());
+		if (!request.sameAs(posted)) {
+			posted = request;
+			pending.set(request);
+			LockSupport.unpark(worker.get());
+		}
+		if (ready.get().fresh || shownFailure != failure) {
+			shownFailure = failure;
+			map.markDirty();
+		}
+		super.handle(now);
+	}
+
+	/**
+	 * the rays are drawn again when the worker has finished a frame, a move of the mouse alone only
+	 * moves the light source dot.
+	 */
+	@Override
+	protected void markMouseDirty(double oldX, double oldY) {
+		markLightSource(oldX, oldY);
+		markLightSource(mouse.x(), mouse.y());
+	}
+
+	@Override
+	protected void handle(GraphicsContext gc, long now) {
+		layer.draw(gc, map);
+		profiler.mark(Phase.SHAPES);
+
+		boolean swapped = ready.get().fresh;
+		if (swapped) {
+			front = ready.getAndSet(front);
+			front.fresh = false;
+			profiler.addWork(front.hits.size(), front.edgeTests);
+		}
+		profiler.mark(Phase.COMPUTE);
+		long start = System.nanoTime();
+		if (map.getDrawSectors()) {
+			fillSectors(gc, front.hits, Color.GHOSTWHITE);
+		}
+		drawRays(gc, front.hits, front.lightX, front.lightY, Color.BLACK);
+		// the cast of a frame was timed on the worker, only the first draw of it is added
+		if (swapped) {
+			addRayCost(front.rayCount, front.castNanos + System.nanoTime() - start);
+		}
+		Throwable error = failure;
+		if (error != null) {
+			gc.setFill(Color.RED);
+			gc.fillText("ray cast failed, start again to retry: " + error, 5, map.h() - 10);
+		}
+	}
+
+	/**
+	 * loop of the worker thread, cast the latest request or park until there is one. if a cast throws, the
+	 * worker stores the error in {@link PipelinedRayAnimator#failure} to be drawn, gives up its place so
+	 * {@link PipelinedRayAnimator#start()} can create a new one, and lets the error reach the uncaught
+	 * exception handler of the thread.
+	 */
+	private void work() {
+		RayCaster workerCaster = new RayCaster();
+		try {
+			castRequests(workerCaster);
+		} catch (RuntimeException | Error e) {
+			failure = e;
+			throw e;
+		} finally {
+			workerCaster.shutdown();
+			worker.compareAndSet(Thread.currentThread(), null);
+		}
+	}
+
+	private void castRequests(RayCaster workerCaster) {
+		Acceleration acceleration = null;
+		Frame back = new Frame();
+		while (worker.get() == Thread.currentThread()) {
+			Request request = pending.getAndSet(null);
+			if (request == null) {
+				LockSupport.park(this);
+				continue;
+			}
+			if (request.acceleration != acceleration) {
+				acceleration = request.acceleration;
+				workerCaster.setAccelerator(acceleration.create());
+			}
+			workerCaster.setArea(request.width, request.height);
+			workerCaster.setParallelism(request.parallelism);
+			long start = System.nanoTime();
+			workerCaster.update(request.edges);
+			workerCaster.cast(request.lightX, request.lightY, request.rayCount, back.hits);
+			back.castNanos = System.nanoTime() - start;
+			back.rayCount = request.rayCount;
+			back.lightX = request.lightX;
+			back.lightY = request.lightY;
+			back.edgeTests = workerCaster.getAccelerator().sumEdgeTestsThenReset();
+			back.fresh = true;
+			back = ready.getAndSet(back);
+			back.fresh = false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Pipelined rays";
+	}
+}
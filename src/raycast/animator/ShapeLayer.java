@@ -0,0 +1,78 @@
+package raycast.animator;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import raycast.CanvasMap;
+import raycast.entity.geometry.DirtyRegion;
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * <p>
+ * a cached image of the background and all shapes of a {@link CanvasMap}. shapes are drawn once on an
+ * offscreen {@link Canvas} and copied to a {@link WritableImage}, every frame only the dirty region of the
+ * image is copied to the map.
+ * </p>
+ * <p>
+ * the image is drawn again when the size of the map or {@link CanvasMap#getShapesVersion()} changes.
+ * </p>
+ */
+public class ShapeLayer {
+
+	private Color background;
+	private Canvas offscreen;
+	private SnapshotParameters parameters;
+	private WritableImage image;
+	private long version = -1;
+
+	/**
+	 * create a new layer
+	 * @param background - color drawn behind the shapes
+	 */
+	public ShapeLayer(Color background) {
+		this.background = background;
+		offscreen = new Canvas();
+		parameters = new SnapshotParameters();
+		parameters.setFill(background);
+	}
+
+	/**
+	 * copy the dirty region of the cached image to the map, the image is drawn first if it is out of date.
+	 * @param gc - {@link GraphicsContext} of the map
+	 * @param map - map to draw the shapes of
+	 */
+	public void draw(GraphicsContext gc, CanvasMap map) {
+		int w = (int) Math.ceil(map.w()), h = (int) Math.ceil(map.h());
+		if (w <= 0 || h <= 0) {
+			return;
+		}
+		if (image == null || version != map.getShapesVersion() || image.getWidth() != w || image.getHeight() != h) {
+			render(map, w, h);
+		}
+
+		DirtyRegion dirty = map.getDirtyRegion();
+		double x = Math.max(0, dirty.x()), y = Math.max(0, dirty.y());
+		double right = Math.min(w, dirty.x() + dirty.w()), bottom = Math.min(h, dirty.y() + dirty.h());
+		if (right > x && bottom > y) {
+			gc.drawImage(image, x, y, right - x, bottom - y, x, y, right - x, bottom - y);
+		}
+	}
+
+	private void render(CanvasMap map, int w, int h) {
+		offscreen.setWidth(w);
+		offscreen.setHeight(h);
+		GraphicsContext gc = offscreen.getGraphicsContext2D();
+		gc.setFill(background);
+		gc.fillRect(0, 0, w, h);
+		for (PolyShape shape : map.shapes()) {
+			shape.getDrawable().draw(gc);
+		}
+		if (image == null || image.getWidth() != w || image.getHeight() != h) {
+			image = new WritableImage(w, h);
+		}
+		offscreen.snapshot(parameters, image);
+		version = map.getShapesVersion();
+	}
+}
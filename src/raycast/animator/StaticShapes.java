@@ -2,17 +2,28 @@ package raycast.animator;
 
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
-import raycast.entity.geometry.PolyShape;
+import raycast.entity.FrameProfiler.Phase;
 
 public class StaticShapes extends AbstractAnimator {
 
 	private static final Color BACKGROUND = Color.BISQUE;
 
+	private ShapeLayer layer = new ShapeLayer(BACKGROUND);
+
 	@Override
 	protected void handle(GraphicsContext gc, long now) {
-		clearAndFill(gc, BACKGROUND);
-		for (PolyShape ps : map.shapes()) {
-			ps.getDrawable().draw(gc);
+		layer.draw(gc, map);
+		profiler.mark(Phase.SHAPES);
+	}
+
+	/**
+	 * shapes do not depend on the mouse, only the light source dot needs to be drawn again.
+	 */
+	@Override
+	protected void markMouseDirty(double oldX, double oldY) {
+		if (map.getDrawLightSource()) {
+			markLightSource(oldX, oldY);
+			markLightSource(mouse.x(), mouse.y());
 		}
 	}
 
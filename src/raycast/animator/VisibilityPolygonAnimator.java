@@ -0,0 +1,42 @@
+package raycast.animator;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import raycast.engine.VisibilityPolygon;
+import raycast.entity.FrameProfiler.Phase;
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * this animator draws the area visible from the mouse as one polygon computed by {@link VisibilityPolygon}.
+ * the ray count option is not used, the number of rays depends on the number of shape corners.
+ */
+public class VisibilityPolygonAnimator extends AbstractRayAnimator {
+
+	private VisibilityPolygon polygon = new VisibilityPolygon();
+
+	@Override
+	protected void handle(GraphicsContext gc, long now) {
+		clearAndFill(gc, Color.ORCHID);
+
+		updateCaster();
+		caster.getAccelerator().prepare(mouse.x(), mouse.y());
+		polygon.compute(caster.getAccelerator(), caster.getEdges(), mouse.x(), mouse.y(), map.w(), map.h());
+		profiler.addWork(polygon.rayCount(), caster.getAccelerator().sumEdgeTestsThenReset());
+		profiler.mark(Phase.COMPUTE);
+		gc.setFill(Color.GHOSTWHITE);
+		gc.fillPolygon(polygon.xs(), polygon.ys(), polygon.size());
+
+		for (PolyShape shape : map.shapes()) {
+			shape.getDrawable().draw(gc);
+		}
+		profiler.mark(Phase.SHAPES);
+		if (map.getDrawIntersectPoint()) {
+			fillDots(gc, polygon.xs(), polygon.ys(), polygon.size());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Visibility polygon";
+	}
+}
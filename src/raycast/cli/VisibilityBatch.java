@@ -0,0 +1,387 @@
+package raycast.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import raycast.engine.Acceleration;
+import raycast.engine.EdgeBuffer;
+import raycast.engine.RayAccelerator;
+import raycast.engine.VisibilityPolygon;
+import raycast.entity.geometry.PolyShape;
+import raycast.scene.SceneFile;
+import raycast.scene.SceneReader;
+
+/**
+ * <p>
+ * compute the visibility polygon of many light positions without JavaFX. the scene is loaded once, one
+ * {@link RayAccelerator} is built and shared by all threads, every thread uses its own
+ * {@link VisibilityPolygon}. accelerators which are prepared for one light at a time, see
+ * {@link RayAccelerator#isPreparedPerLight()}, can not be shared and are built once per thread instead.
+ * </p>
+ * <p>
+ * lights are read and processed in batches. while one batch is computed on a {@link ForkJoinPool} the
+ * results of the previous batch are written and the next batch is read, so output is streamed in the same
+ * order as the lights file and memory use does not depend on the number of lights.
+ * </p>
+ *
+ * <pre>
+ * java raycast.cli.VisibilityBatch -s scene.txt -l lights.txt [-o out.txt] [-a BVH] [-t threads] [-size WxH]
+ *   -s     scene in any format of {@link SceneReader}, a {@link SceneFile} is mapped without creating shapes
+ *   -l     lights, one light per line as x y
+ *   -o     output file, default is standard output. one line per light: x y pointCount x1 y1 x2 y2 ...
+ *   -a     acceleration, one of {@link Acceleration}, default BVH
+ *   -t     number of threads, default number of cores
+ *   -size  area of the scene, default is from 0,0 to the largest x and y of the shapes and lights. the
+ *          lights file is then read twice, once to find the largest light position
+ * </pre>
+ * <p>
+ * in the lights file empty lines and lines starting with # are ignored, numbers may be separated by spaces
+ * or commas. lights must be inside the area, a light with a negative coordinate or past the given size is
+ * an error. the number of queries per second is printed to standard error at the end.
+ * </p>
+ */
+public class VisibilityBatch {
+
+	private static final String USAGE = "usage: java raycast.cli.VisibilityBatch -s scene -l lights [-o out] "
+			+ "[-a BVH] [-t threads] [-size WxH]";
+
+	/**
+	 * number of lights computed before their results are written
+	 */
+	public static final int BATCH_SIZE = 1024;
+
+	/**
+	 * number of lights computed by one task
+	 */
+	private static final int TASK_SIZE = 16;
+
+	/**
+	 * accelerator shared by all threads, null if every thread builds its own
+	 */
+	private RayAccelerator accelerator;
+	/**
+	 * accelerator used by each thread, the shared one unless it must be prepared for every light
+	 */
+	private ThreadLocal<RayAccelerator> accelerators;
+	private boolean preparedPerLight;
+	private EdgeBuffer edges;
+	private double width, height;
+	private ThreadLocal<VisibilityPolygon> polygons = ThreadLocal.withInitial(VisibilityPolygon::new);
+
+	/**
+	 * create a batch over given edges
+	 * @param edges - edges of the scene
+	 * @param acceleration - acceleration used to find the closest hits
+	 * @param width - width of the area
+	 * @param height - height of the area
+	 */
+	public VisibilityBatch(EdgeBuffer edges, Acceleration acceleration, double width, double height) {
+		this.edges = edges;
+		this.width = width;
+		this.height = height;
+		RayAccelerator created = acceleration.create();
+		preparedPerLight = created.isPreparedPerLight();
+		if (preparedPerLight) {
+			accelerators = ThreadLocal.withInitial(() -> build(acceleration.create()));
+		} else {
+			accelerator = build(created);
+			accelerators = ThreadLocal.withInitial(() -> accelerator);
+		}
+	}
+
+	private RayAccelerator build(RayAccelerator created) {
+		created.setArea(width, height);
+		created.build(edges);
+		return created;
+	}
+
+	/**
+	 * load the edges of a scene. a {@link SceneFile} is mapped and its edges are filled without creating
+	 * any {@link PolyShape}, other formats are read with {@link SceneReader#read(Path)}.
+	 * @param file - path of scene
+	 * @return edges of the scene
+	 * @throws IOException if scene can not be read
+	 */
+	public static EdgeBuffer loadEdges(Path file) throws IOException {
+		if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(SceneFile.EXTENSION)) {
+			return SceneFile.map(file).fill(new EdgeBuffer());
+		}
+		return new EdgeBuffer().build(SceneReader.read(file));
+	}
+
+	public static void main(String[] args) throws IOException {
+		String scene = null, lights = null, output = null;
+		Acceleration acceleration = Acceleration.BVH;
+		int threads = Runtime.getRuntime().availableProcessors();
+		double width = -1, height = -1;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-s":
+					scene = value(args, i++);
+					break;
+				case "-l":
+					lights = value(args, i++);
+					break;
+				case "-o":
+					output = value(args, i++);
+					break;
+				case "-a":
+					acceleration = Acceleration.valueOf(value(args, i++).toUpperCase(Locale.ROOT));
+					break;
+				case "-t":
+					threads = Integer.parseInt(value(args, i++));
+					if (threads < 1) {
+						throw new IllegalArgumentException("-t needs at least 1 thread\n" + USAGE);
+					}
+					break;
+				case "-size":
+					String[] size = value(args, i++).split("x");
+					if (size.length != 2) {
+						throw new IllegalArgumentException("-size needs WxH\n" + USAGE);
+					}
+					width = Double.parseDouble(size[0]);
+					height = Double.parseDouble(size[1]);
+					if (!(width > 0 && height > 0)) {
+						throw new IllegalArgumentException("-size needs a positive width and height\n" + USAGE);
+					}
+					break;
+				default:
+					throw new IllegalArgumentException("unknown argument: " + args[i] + "\n" + USAGE);
+			}
+		}
+		if (scene == null || lights == null) {
+			throw new IllegalArgumentException("both -s scene and -l lights are required\n" + USAGE);
+		}
+
+		long start = System.nanoTime();
+		EdgeBuffer edges = loadEdges(Paths.get(scene));
+		long loaded = System.nanoTime();
+		if (width < 0) {
+			for (int e = 0; e < edges.size(); e++) {
+				width = Math.max(width, edges.maxX(e));
+				height = Math.max(height, edges.maxY(e));
+			}
+			try (LightReader reader = new LightReader(Paths.get(lights))) {
+				double[] positions = new double[BATCH_SIZE * 2];
+				for (int count; (count = reader.read(positions)) > 0;) {
+					for (int i = 0; i < count * 2; i += 2) {
+						width = Math.max(width, positions[i]);
+						height = Math.max(height, positions[i + 1]);
+					}
+				}
+			}
+		}
+
+		long building = System.nanoTime();
+		VisibilityBatch batch = new VisibilityBatch(edges, acceleration, width, height);
+		long built = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		int queries;
+		try (LightReader reader = new LightReader(Paths.get(lights));
+				Writer out = output == null ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+						: Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+			queries = batch.run(pool, reader, out);
+		} finally {
+			pool.shutdown();
+		}
+		long end = System.nanoTime();
+
+		System.err.printf(Locale.ROOT, "%d shapes, %d edges, %s, %d threads%n", edges.shapeCount(), edges.size(),
+				batch.preparedPerLight ? acceleration + " built per thread" : batch.accelerator, threads);
+		System.err.printf(Locale.ROOT, "load %.1f ms, build %.1f ms, %d queries in %.1f ms, %.1f queries/s%n",
+				(loaded - start) / 1e6, (built - building) / 1e6, queries, (end - built) / 1e6,
+				queries / ((end - built) / 1e9));
+	}
+
+	/**
+	 * get the value following the flag at given index
+	 * @throws IllegalArgumentException if the flag is the last argument
+	 */
+	private static String value(String[] args, int flag) {
+		if (flag + 1 >= args.length) {
+			throw new IllegalArgumentException(args[flag] + " needs a value\n" + USAGE);
+		}
+		return args[flag + 1];
+	}
+
+	/**
+	 * compute the visibility polygon of every light and write them in order
+	 * @param pool - pool to compute on
+	 * @param lights - reader of the lights
+	 * @param out - where to write the polygons
+	 * @return number of lights computed
+	 * @throws IOException if reading or writing fails
+	 */
+	public int run(ForkJoinPool pool, LightReader lights, Writer out) throws IOException {
+		double[] computing = new double[BATCH_SIZE * 2], reading = new double[BATCH_SIZE * 2];
+		String[] results = new String[BATCH_SIZE], writing = new String[BATCH_SIZE];
+		int total = 0, previousCount = 0;
+		int count = read(lights, computing);
+		while (count > 0) {
+			ForkJoinTask<Void> task = pool.submit(new QueryTask(computing, 0, count, results));
+			write(out, writing, previousCount);
+			int nextCount = read(lights, reading);
+			task.join();
+			total += count;
+			previousCount = count;
+			count = nextCount;
+			String[] lines = writing;
+			writing = results;
+			results = lines;
+			double[] positions = computing;
+			computing = reading;
+			reading = positions;
+		}
+		write(out, writing, previousCount);
+		return total;
+	}
+
+	/**
+	 * read the next lights and check they are inside the area, the polygon of a light outside would be wrong
+	 * as rays leave the area where they start
+	 */
+	private int read(LightReader lights, double[] positions) throws IOException {
+		int count = lights.read(positions);
+		for (int i = 0; i < count * 2; i += 2) {
+			if (positions[i] > width || positions[i + 1] > height) {
+				throw new IOException(String.format(Locale.ROOT, "light %s %s is outside the area %sx%s",
+						positions[i], positions[i + 1], width, height));
+			}
+		}
+		return count;
+	}
+
+	private static void write(Writer out, String[] lines, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			out.write(lines[i]);
+			lines[i] = null;
+		}
+	}
+
+	/**
+	 * compute the visibility polygon of one light and format it as one line
+	 */
+	private String query(double x, double y, StringBuilder line) {
+		RayAccelerator threadAccelerator = accelerators.get();
+		if (preparedPerLight) {
+			threadAccelerator.prepare(x, y);
+		}
+		VisibilityPolygon polygon = polygons.get().compute(threadAccelerator, edges, x, y, width, height);
+		line.setLength(0);
+		append(line, x).append(' ');
+		append(line, y).append(' ').append(polygon.size());
+		for (int i = 0; i < polygon.size(); i++) {
+			append(line.append(' '), polygon.xs()[i]).append(' ');
+			append(line, polygon.ys()[i]);
+		}
+		return line.append('\n').toString();
+	}
+
+	/**
+	 * append a value rounded to 3 decimals, much faster than {@link String#format}
+	 */
+	private static StringBuilder append(StringBuilder line, double value) {
+		double rounded = Math.round(value * 1000) / 1000.0;
+		if (rounded == (long) rounded) {
+			return line.append((long) rounded);
+		}
+		return line.append(rounded);
+	}
+
+	/**
+	 * compute the lights with index from (inclusive) to (exclusive), split in halves until small enough.
+	 * results are stored in lines at the index of the light.
+	 */
+	private class QueryTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] positions;
+		private final int from, to;
+		private final String[] lines;
+
+		QueryTask(double[] positions, int from, int to, String[] lines) {
+			this.positions = positions;
+			this.from = from;
+			this.to = to;
+			this.lines = lines;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= TASK_SIZE) {
+				StringBuilder line = new StringBuilder();
+				for (int i = from; i < to; i++) {
+					lines[i] = query(positions[i * 2], positions[i * 2 + 1], line);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new QueryTask(positions, from, middle, lines), new QueryTask(positions, middle, to, lines));
+			}
+		}
+	}
+
+	/**
+	 * reads lights from a text file a batch at a time, one light per line as x y
+	 */
+	public static class LightReader implements Closeable {
+
+		private final Path file;
+		private final BufferedReader reader;
+		private int lineNumber;
+
+		/**
+		 * open a lights file
+		 * @param file - path of file
+		 * @throws IOException if file can not be opened
+		 */
+		public LightReader(Path file) throws IOException {
+			this.file = file;
+			reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * read the next lights, as many as fit in the given array
+		 * @param positions - x and y of every light read are stored one after the other
+		 * @return number of lights read, 0 at the end of the file
+		 * @throws IOException if file can not be read or a line is not a position with x and y of at least 0
+		 */
+		public int read(double[] positions) throws IOException {
+			int count = 0;
+			String line;
+			while (count + 2 <= positions.length && (line = reader.readLine()) != null) {
+				lineNumber++;
+				double[] numbers = SceneReader.parseNumbers(line);
+				if (numbers.length == 0) {
+					continue;
+				}
+				if (numbers.length != 2) {
+					throw new IOException(file + ":" + lineNumber + ": light needs x and y");
+				}
+				if (!(numbers[0] >= 0 && numbers[1] >= 0)) {
+					throw new IOException(file + ":" + lineNumber + ": light must not have a negative coordinate");
+				}
+				positions[count++] = numbers[0];
+				positions[count++] = numbers[1];
+			}
+			return count / 2;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package raycast.engine;
+
+import java.util.function.Supplier;
+
+/**
+ * all {@link RayAccelerator}s which can be selected by the user.
+ */
+public enum Acceleration {
+
+	BRUTE_FORCE("Brute force", BruteForceAccelerator::new),
+	BATCH("Batch kernel", BatchAccelerator::new),
+	BVH("BVH", BoundingVolumeHierarchy::new),
+	GRID("Grid", UniformGrid::new),
+	DYNAMIC("Dynamic tree", DynamicAabbTree::new),
+	SECTOR("Sector culling", SectorCulling::new);
+
+	private final String name;
+	private final Supplier<RayAccelerator> factory;
+
+	private Acceleration(String name, Supplier<RayAccelerator> factory) {
+		this.name = name;
+		this.factory = factory;
+	}
+
+	/**
+	 * create a new unbuilt instance of this accelerator
+	 * @return new {@link RayAccelerator}
+	 */
+	public RayAccelerator create() {
+		return factory.get();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,139 @@
+package raycast.engine;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.SimpleDoubleProperty;
+
+/**
+ * <p>
+ * picks the number of rays to cast so a frame takes about {@link AdaptiveRayBudget#budgetMillisProperty()}.
+ * after every frame the animator passes the time it spent to cast and draw the rays to
+ * {@link AdaptiveRayBudget#update(int, long, int)}, the times are smoothed with an exponential moving
+ * average.
+ * </p>
+ * <p>
+ * the count only changes when the average leaves the band between {@link AdaptiveRayBudget#GROW_BELOW} of
+ * the budget and the budget itself. it is then scaled so the frame takes {@link AdaptiveRayBudget#TARGET}
+ * of the budget, which is inside the band, so the count does not swing back and forth. after a change the
+ * average starts over and {@link AdaptiveRayBudget#SETTLE_FRAMES} frames are measured before the next one.
+ * </p>
+ * <p>
+ * the active count and the headroom, the part of the budget not used, are read only properties for display.
+ * all methods must be called on the JavaFX thread.
+ * </p>
+ */
+public class AdaptiveRayBudget {
+
+	public static final double DEFAULT_BUDGET_MILLIS = 8;
+	public static final int MIN_RAYS = 36;
+
+	/**
+	 * weight of the newest frame in the moving average
+	 */
+	private static final double SMOOTHING = 0.2;
+	/**
+	 * the count grows when the average is below this part of the budget
+	 */
+	public static final double GROW_BELOW = 0.7;
+	/**
+	 * part of the budget a frame should take after the count changes
+	 */
+	public static final double TARGET = 0.85;
+	/**
+	 * the count grows by at most this factor in one change, measurements of small counts are noisy
+	 */
+	private static final double MAX_GROWTH = 2;
+	public static final int SETTLE_FRAMES = 10;
+
+	private final DoubleProperty budgetMillis = new SimpleDoubleProperty(DEFAULT_BUDGET_MILLIS);
+	private final ReadOnlyIntegerWrapper activeRays = new ReadOnlyIntegerWrapper(360 * 3);
+	private final ReadOnlyDoubleWrapper headroom = new ReadOnlyDoubleWrapper(1);
+
+	private double averageNanos = Double.NaN;
+	private int frames;
+
+	/**
+	 * time one frame should take in milliseconds
+	 * @return property of the budget
+	 */
+	public DoubleProperty budgetMillisProperty() {
+		return budgetMillis;
+	}
+
+	public double getBudgetMillis() {
+		return budgetMillis.get();
+	}
+
+	/**
+	 * number of rays the animator should cast
+	 * @return read only property of the active count
+	 */
+	public ReadOnlyIntegerProperty activeRaysProperty() {
+		return activeRays.getReadOnlyProperty();
+	}
+
+	public int getActiveRays() {
+		return activeRays.get();
+	}
+
+	/**
+	 * part of the budget the average frame does not use, negative when frames take longer than the budget
+	 * @return read only property of the headroom
+	 */
+	public ReadOnlyDoubleProperty headroomProperty() {
+		return headroom.getReadOnlyProperty();
+	}
+
+	public double getHeadroom() {
+		return headroom.get();
+	}
+
+	/**
+	 * get the number of rays to cast in the next frame
+	 * @param maxRays - most rays to cast, usually the ray count chosen by the user
+	 * @return active count limited to {@link AdaptiveRayBudget#MIN_RAYS} and maxRays
+	 */
+	public int rayCount(int maxRays) {
+		return Math.max(Math.min(MIN_RAYS, maxRays), Math.min(activeRays.get(), maxRays));
+	}
+
+	/**
+	 * add the time of a frame to the average and change the active count if the average is outside the band
+	 * @param rays - number of rays cast in the frame, from {@link AdaptiveRayBudget#rayCount(int)}
+	 * @param frameNanos - time spent to cast and draw the rays
+	 * @param maxRays - most rays to cast, usually the ray count chosen by the user
+	 */
+	public void update(int rays, long frameNanos, int maxRays) {
+		averageNanos = Double.isNaN(averageNanos) ? frameNanos : averageNanos + SMOOTHING * (frameNanos - averageNanos);
+		double budget = budgetMillis.get() * 1e6;
+		headroom.set(1 - averageNanos / budget);
+		if (++frames < SETTLE_FRAMES || averageNanos <= 0) {
+			return;
+		}
+		double scale = budget * TARGET / averageNanos;
+		int target = rays;
+		if (averageNanos > budget) {
+			target = (int) (rays * scale);
+		} else if (averageNanos < budget * GROW_BELOW) {
+			target = (int) Math.ceil(rays * Math.min(MAX_GROWTH, scale));
+		}
+		// max last, a user count below MIN_RAYS is still the most rays to cast
+		target = Math.min(maxRays, Math.max(MIN_RAYS, target));
+		if (target != activeRays.get()) {
+			activeRays.set(target);
+			averageNanos = Double.NaN;
+			frames = 0;
+		}
+	}
+
+	/**
+	 * forget the measured frames, for example when the scene or the animator changes
+	 */
+	public void reset() {
+		averageNanos = Double.NaN;
+		frames = 0;
+	}
+}
@@ -0,0 +1,44 @@
+package raycast.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * test every ray against every edge like {@link BruteForceAccelerator} but in blocks using
+ * {@link IntersectKernel}, with the Vector API when it is available. {@link BruteForceAccelerator} remains
+ * the plain scalar loop.
+ */
+public class BatchAccelerator implements RayAccelerator {
+
+	private EdgeBuffer edges;
+	/**
+	 * number of edges tested, counted once per query so threads do not contend
+	 */
+	private LongAdder edgeTests = new LongAdder();
+	/**
+	 * kernel of each thread, a kernel holds scratch arrays and can not be shared
+	 */
+	private ThreadLocal<IntersectKernel> kernels = ThreadLocal.withInitial(IntersectKernel::create);
+
+	@Override
+	public void build(EdgeBuffer edges) {
+		this.edges = edges;
+	}
+
+	@Override
+	public int nearestHit(double[] result, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		int edge = kernels.get().nearest(edges, 0, edges.size(), startX, startY, dirX, dirY, maxDistance);
+		edgeTests.add(edges.size());
+		return edges.store(result, edge, startX, startY, dirX, dirY);
+	}
+
+	@Override
+	public long sumEdgeTestsThenReset() {
+		return edgeTests.sumThenReset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Batch kernel: %d lanes", kernels.get().lanes());
+	}
+}
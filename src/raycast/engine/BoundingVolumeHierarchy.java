@@ -0,0 +1,257 @@
+package raycast.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * a bounding volume hierarchy over the edges of an {@link EdgeBuffer}. every node is an axis aligned box
+ * which contains all edges under it. a ray only visits the children whose box it enters before the closest
+ * hit found so far, so most edges of a large scene are never tested.
+ * </p>
+ * <p>
+ * nodes are stored in flat primitive arrays. the tree is built top down by splitting the edges at the middle
+ * of the longest axis of their centers until a node holds {@link BoundingVolumeHierarchy#LEAF_SIZE} or less.
+ * </p>
+ */
+public class BoundingVolumeHierarchy implements RayAccelerator {
+
+	/**
+	 * max number of edges in a leaf node
+	 */
+	public static final int LEAF_SIZE = 4;
+
+	/**
+	 * boxes are grown by this much so rays passing exactly through a corner of an edge are not culled by
+	 * rounding of the box test, such rays are cast by {@link VisibilityPolygon} for every corner.
+	 */
+	private static final double PADDING = 1e-7;
+
+	private EdgeBuffer edges;
+	private int edgeCount;
+	/**
+	 * edge indices sorted so each leaf refers to a continuous range
+	 */
+	private int[] order;
+
+	private int nodeCount;
+	private double[] minX, minY, maxX, maxY;
+	/**
+	 * for leaf nodes first index in order, for inner nodes index of right child. left child is always next node.
+	 */
+	private int[] offset;
+	/**
+	 * number of edges in a leaf node, 0 for inner nodes
+	 */
+	private int[] count;
+
+	private int maxDepth;
+	/**
+	 * traversal stack of each thread, so the tree can be queried from many threads at once
+	 */
+	private ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[64]);
+	private long buildNanos;
+	/**
+	 * number of edges tested, counted once per query so threads do not contend
+	 */
+	private LongAdder edgeTests = new LongAdder();
+
+	@Override
+	public void build(EdgeBuffer edges) {
+		long start = System.nanoTime();
+		this.edges = edges;
+		edgeCount = edges.size();
+
+		int capacity = Math.max(1, 2 * edgeCount);
+		minX = new double[capacity];
+		minY = new double[capacity];
+		maxX = new double[capacity];
+		maxY = new double[capacity];
+		offset = new int[capacity];
+		count = new int[capacity];
+		nodeCount = 0;
+		maxDepth = 0;
+
+		order = new int[edgeCount];
+		double[] centerX = new double[edgeCount];
+		double[] centerY = new double[edgeCount];
+		for (int e = 0; e < edgeCount; e++) {
+			order[e] = e;
+			centerX[e] = edges.x(e) + edges.dx(e) / 2;
+			centerY[e] = edges.y(e) + edges.dy(e) / 2;
+		}
+		buildNode(0, edgeCount, centerX, centerY, 1);
+		buildNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * build the node for edges in order[from, to) and return its index
+	 */
+	private int buildNode(int from, int to, double[] centerX, double[] centerY, int depth) {
+		int node = nodeCount++;
+		double nMinX = Double.MAX_VALUE, nMinY = Double.MAX_VALUE;
+		double nMaxX = -Double.MAX_VALUE, nMaxY = -Double.MAX_VALUE;
+		double cMinX = Double.MAX_VALUE, cMinY = Double.MAX_VALUE;
+		double cMaxX = -Double.MAX_VALUE, cMaxY = -Double.MAX_VALUE;
+		for (int i = from; i < to; i++) {
+			int e = order[i];
+			nMinX = Math.min(nMinX, edges.minX(e));
+			nMinY = Math.min(nMinY, edges.minY(e));
+			nMaxX = Math.max(nMaxX, edges.maxX(e));
+			nMaxY = Math.max(nMaxY, edges.maxY(e));
+			cMinX = Math.min(cMinX, centerX[e]);
+			cMinY = Math.min(cMinY, centerY[e]);
+			cMaxX = Math.max(cMaxX, centerX[e]);
+			cMaxY = Math.max(cMaxY, centerY[e]);
+		}
+		minX[node] = nMinX - PADDING;
+		minY[node] = nMinY - PADDING;
+		maxX[node] = nMaxX + PADDING;
+		maxY[node] = nMaxY + PADDING;
+
+		if (to - from <= LEAF_SIZE) {
+			offset[node] = from;
+			count[node] = to - from;
+			return node;
+		}
+
+		boolean splitX = cMaxX - cMinX >= cMaxY - cMinY;
+		double[] center = splitX ? centerX : centerY;
+		double middle = splitX ? (cMinX + cMaxX) / 2 : (cMinY + cMaxY) / 2;
+		int mid = partition(from, to, center, middle);
+		// all centers on one side, happens when edges share the same center. split in half instead.
+		if (mid == from || mid == to) {
+			mid = (from + to) >>> 1;
+		}
+
+		maxDepth = Math.max(maxDepth, depth);
+		buildNode(from, mid, centerX, centerY, depth + 1);
+		offset[node] = buildNode(mid, to, centerX, centerY, depth + 1);
+		count[node] = 0;
+		return node;
+	}
+
+	private int partition(int from, int to, double[] center, double middle) {
+		int i = from, j = to - 1;
+		while (i <= j) {
+			if (center[order[i]] < middle) {
+				i++;
+			} else {
+				int temp = order[i];
+				order[i] = order[j];
+				order[j--] = temp;
+			}
+		}
+		return i;
+	}
+
+	@Override
+	public int nearestHit(double[] result, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		if (nodeCount == 0 || edgeCount == 0) {
+			return -1;
+		}
+		double invX = 1 / dirX;
+		double invY = 1 / dirY;
+		int closestEdge = -1;
+		double closest = maxDistance;
+		int tests = 0;
+
+		int[] stack = stacks.get();
+		if (stack.length < maxDepth + 2) {
+			stack = new int[maxDepth + 2];
+			stacks.set(stack);
+		}
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (enter(node, startX, startY, dirX, dirY, invX, invY) >= closest) {
+				continue;
+			}
+			if (count[node] > 0) {
+				tests += count[node];
+				for (int i = offset[node], end = i + count[node]; i < end; i++) {
+					int e = order[i];
+					double distance = edges.intersect(e, startX, startY, dirX, dirY);
+					if (distance >= 0 && distance < closest) {
+						closest = distance;
+						closestEdge = e;
+					}
+				}
+			} else {
+				int left = node + 1;
+				int right = offset[node];
+				// push the further child first so the closer one is visited first and shrinks closest sooner
+				double leftEnter = enter(left, startX, startY, dirX, dirY, invX, invY);
+				double rightEnter = enter(right, startX, startY, dirX, dirY, invX, invY);
+				if (leftEnter <= rightEnter) {
+					if (rightEnter < closest)
+						stack[top++] = right;
+					if (leftEnter < closest)
+						stack[top++] = left;
+				} else {
+					if (leftEnter < closest)
+						stack[top++] = left;
+					if (rightEnter < closest)
+						stack[top++] = right;
+				}
+			}
+		}
+		edgeTests.add(tests);
+		return edges.store(result, closestEdge, startX, startY, dirX, dirY);
+	}
+
+	/**
+	 * get the distance at which the ray enters the box of given node.
+	 * @return distance of entry, 0 if ray starts inside the box, {@link Double#MAX_VALUE} if box is missed
+	 */
+	private double enter(int node, double startX, double startY, double dirX, double dirY, double invX,
+			double invY) {
+		double tMin = 0, tMax = Double.MAX_VALUE;
+		if (dirX == 0) {
+			if (startX < minX[node] || startX > maxX[node])
+				return Double.MAX_VALUE;
+		} else {
+			double t1 = (minX[node] - startX) * invX;
+			double t2 = (maxX[node] - startX) * invX;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+		if (dirY == 0) {
+			if (startY < minY[node] || startY > maxY[node])
+				return Double.MAX_VALUE;
+		} else {
+			double t1 = (minY[node] - startY) * invY;
+			double t2 = (maxY[node] - startY) * invY;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+		return tMin <= tMax ? tMin : Double.MAX_VALUE;
+	}
+
+	/**
+	 * get number of nodes in the tree after last build
+	 * @return number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * get the time it took to build the tree the last time
+	 * @return build time in nanoseconds
+	 */
+	public long getBuildNanos() {
+		return buildNanos;
+	}
+
+	@Override
+	public long sumEdgeTestsThenReset() {
+		return edgeTests.sumThenReset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("BVH: %d nodes, built in %.3f ms", nodeCount, buildNanos / 1e6);
+	}
+}
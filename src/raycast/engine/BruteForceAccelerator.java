@@ -0,0 +1,53 @@
+package raycast.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * test every ray against every edge. there is nothing to build, this is the reference which all other
+ * {@link RayAccelerator}s must match. the loop scans the arrays of {@link EdgeBuffer} from start to end
+ * so it is friendly to the cache and a candidate for auto vectorization.
+ */
+public class BruteForceAccelerator implements RayAccelerator {
+
+	private EdgeBuffer edges;
+	/**
+	 * number of edges tested, counted once per query so threads do not contend
+	 */
+	private LongAdder edgeTests = new LongAdder();
+
+	@Override
+	public void build(EdgeBuffer edges) {
+		this.edges = edges;
+	}
+
+	@Override
+	public int nearestHit(double[] result, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		double[] x = edges.xs(), y = edges.ys(), dx = edges.dxs(), dy = edges.dys();
+		int closestEdge = -1;
+		double closest = maxDistance;
+		for (int e = 0, size = edges.size(); e < size; e++) {
+			double qpx = startX - x[e];
+			double qpy = startY - y[e];
+			double rs = dirX * dy[e] - dx[e] * dirY;
+			double rayScaler = (dx[e] * qpy - qpx * dy[e]) / rs;
+			double segmentScaler = (dirX * qpy - qpx * dirY) / rs;
+			if (rayScaler >= 0 && rayScaler < closest && segmentScaler >= 0 && segmentScaler <= 1) {
+				closest = rayScaler;
+				closestEdge = e;
+			}
+		}
+		edgeTests.add(edges.size());
+		return edges.store(result, closestEdge, startX, startY, dirX, dirY);
+	}
+
+	@Override
+	public long sumEdgeTestsThenReset() {
+		return edgeTests.sumThenReset();
+	}
+
+	@Override
+	public String toString() {
+		return "Brute force";
+	}
+}
@@ -0,0 +1,77 @@
+package raycast.engine;
+
+/**
+ * <p>
+ * a table of unit directions for a fan of rays evenly distributed over 360 degrees starting from angle 0.
+ * directions only depend on the number of rays so they are computed once and read every frame instead of
+ * calling {@link Math#cos(double)} and {@link Math#sin(double)} for every ray.
+ * </p>
+ * <p>
+ * the table is computed again on the next {@link DirectionTable#update(int)} after
+ * {@link DirectionTable#invalidate()} is called or when the number of rays changes.
+ * </p>
+ */
+public class DirectionTable {
+
+	private double[] cos = new double[0];
+	private double[] sin = new double[0];
+	private int rayCount;
+	private boolean valid;
+
+	/**
+	 * mark the table as out of date, usually called from a listener of the ray count.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * make sure the table holds the directions for given number of rays.
+	 * @param rayCount - number of rays
+	 * @return the current instance of this object
+	 */
+	public DirectionTable update(int rayCount) {
+		if (valid && this.rayCount == rayCount) {
+			return this;
+		}
+		if (cos.length < rayCount) {
+			cos = new double[rayCount];
+			sin = new double[rayCount];
+		}
+		double rayIncrementer = 360d / rayCount;
+		for (int ray = 0; ray < rayCount; ray++) {
+			double rayAngle = Math.toRadians(ray * rayIncrementer);
+			cos[ray] = Math.cos(rayAngle);
+			sin[ray] = Math.sin(rayAngle);
+		}
+		this.rayCount = rayCount;
+		valid = true;
+		return this;
+	}
+
+	/**
+	 * get number of rays in the table
+	 * @return number of rays
+	 */
+	public int size() {
+		return rayCount;
+	}
+
+	/**
+	 * get the x of unit direction of given ray
+	 * @param ray - index of ray
+	 * @return x of direction
+	 */
+	public double dirX(int ray) {
+		return cos[ray];
+	}
+
+	/**
+	 * get the y of unit direction of given ray
+	 * @param ray - index of ray
+	 * @return y of direction
+	 */
+	public double dirY(int ray) {
+		return sin[ray];
+	}
+}
@@ -0,0 +1,442 @@
+package raycast.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * a bounding volume hierarchy with one leaf per shape which can be updated when shapes move. every leaf
+ * stores a box grown by {@link DynamicAabbTree#MARGIN} around the shape, a small move which stays inside this
+ * box costs nothing. a larger move removes the leaf and inserts it again at the best place, which costs
+ * O(log n) as the tree is kept balanced by rotations.
+ * </p>
+ * <p>
+ * call {@link DynamicAabbTree#update(int)} after the edges of a shape were written again with
+ * {@link EdgeBuffer#update(int, raycast.entity.geometry.PolyShape)}. {@link RayCaster} does both for every
+ * shape listed in {@link ShapeChanges}.
+ * </p>
+ *
+ * @see <a href="https://box2d.org/files/ErinCatto_DynamicBVH_GDC2019.pdf">Dynamic Bounding Volume Hierarchies</a>
+ */
+public class DynamicAabbTree implements RayAccelerator {
+
+	/**
+	 * distance the box of a leaf is grown by on each side
+	 */
+	public static final double MARGIN = 4;
+
+	private static final int NULL = -1;
+
+	private EdgeBuffer edges;
+	private int root = NULL;
+	private int capacity, used, free = NULL;
+	private double[] minX, minY, maxX, maxY;
+	/**
+	 * left is also the next free node of nodes in the free list
+	 */
+	private int[] parent, left, right, height;
+	/**
+	 * shape index of a leaf, -1 for inner nodes
+	 */
+	private int[] shape;
+	/**
+	 * leaf node of each shape
+	 */
+	private int[] leafOf = new int[0];
+
+	private long moves, reinserts;
+	/**
+	 * number of edges tested, counted once per query so threads do not contend
+	 */
+	private LongAdder edgeTests = new LongAdder();
+	private ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[64]);
+
+	@Override
+	public void build(EdgeBuffer edges) {
+		this.edges = edges;
+		int shapes = edges.shapeCount();
+		capacity = Math.max(1, 2 * shapes);
+		minX = new double[capacity];
+		minY = new double[capacity];
+		maxX = new double[capacity];
+		maxY = new double[capacity];
+		parent = new int[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		height = new int[capacity];
+		shape = new int[capacity];
+		used = 0;
+		free = NULL;
+		root = NULL;
+		moves = reinserts = 0;
+
+		leafOf = new int[shapes];
+		for (int s = 0; s < shapes; s++) {
+			int leaf = allocate();
+			shape[leaf] = s;
+			fatten(leaf, s);
+			insert(leaf);
+			leafOf[s] = leaf;
+		}
+	}
+
+	@Override
+	public boolean update(int s) {
+		if (edges == null || s < 0 || s >= leafOf.length) {
+			return false;
+		}
+		moves++;
+		int leaf = leafOf[s];
+		int from = edges.shapeStart(s), to = edges.shapeEnd(s);
+		boolean inside = true;
+		for (int e = from; e < to && inside; e++) {
+			inside = edges.minX(e) >= minX[leaf] && edges.maxX(e) <= maxX[leaf] && edges.minY(e) >= minY[leaf]
+					&& edges.maxY(e) <= maxY[leaf];
+		}
+		if (!inside) {
+			reinserts++;
+			remove(leaf);
+			fatten(leaf, s);
+			insert(leaf);
+		}
+		return true;
+	}
+
+	/**
+	 * set the box of leaf to the box of the edges of shape s grown by {@link DynamicAabbTree#MARGIN}
+	 */
+	private void fatten(int leaf, int s) {
+		double nMinX = Double.MAX_VALUE, nMinY = Double.MAX_VALUE;
+		double nMaxX = -Double.MAX_VALUE, nMaxY = -Double.MAX_VALUE;
+		for (int e = edges.shapeStart(s), end = edges.shapeEnd(s); e < end; e++) {
+			nMinX = Math.min(nMinX, edges.minX(e));
+			nMinY = Math.min(nMinY, edges.minY(e));
+			nMaxX = Math.max(nMaxX, edges.maxX(e));
+			nMaxY = Math.max(nMaxY, edges.maxY(e));
+		}
+		minX[leaf] = nMinX - MARGIN;
+		minY[leaf] = nMinY - MARGIN;
+		maxX[leaf] = nMaxX + MARGIN;
+		maxY[leaf] = nMaxY + MARGIN;
+	}
+
+	private int allocate() {
+		int node;
+		if (free != NULL) {
+			node = free;
+			free = left[node];
+		} else {
+			if (used == capacity) {
+				grow();
+			}
+			node = used++;
+		}
+		parent[node] = left[node] = right[node] = NULL;
+		height[node] = 0;
+		shape[node] = NULL;
+		return node;
+	}
+
+	private void release(int node) {
+		left[node] = free;
+		height[node] = NULL;
+		free = node;
+	}
+
+	private void grow() {
+		capacity *= 2;
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		height = Arrays.copyOf(height, capacity);
+		shape = Arrays.copyOf(shape, capacity);
+	}
+
+	private boolean isLeaf(int node) {
+		return left[node] == NULL;
+	}
+
+	private double perimeter(int node) {
+		return 2 * (maxX[node] - minX[node] + maxY[node] - minY[node]);
+	}
+
+	private double unionPerimeter(int a, int b) {
+		return 2 * (Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]) + Math.max(maxY[a], maxY[b])
+				- Math.min(minY[a], minY[b]));
+	}
+
+	/**
+	 * set the box and height of an inner node from its children
+	 */
+	private void refit(int node) {
+		int a = left[node], b = right[node];
+		minX[node] = Math.min(minX[a], minX[b]);
+		minY[node] = Math.min(minY[a], minY[b]);
+		maxX[node] = Math.max(maxX[a], maxX[b]);
+		maxY[node] = Math.max(maxY[a], maxY[b]);
+		height[node] = 1 + Math.max(height[a], height[b]);
+	}
+
+	/**
+	 * insert a leaf next to the sibling which grows the total perimeter of the tree the least
+	 */
+	private void insert(int leaf) {
+		if (root == NULL) {
+			root = leaf;
+			parent[leaf] = NULL;
+			return;
+		}
+
+		int index = root;
+		while (!isLeaf(index)) {
+			double area = perimeter(index);
+			double combined = unionPerimeter(index, leaf);
+			// cost of making a new parent for this node and the leaf
+			double cost = 2 * combined;
+			// cost every child pays for the box of this node growing
+			double inheritance = 2 * (combined - area);
+			double cost1 = childCost(left[index], leaf) + inheritance;
+			double cost2 = childCost(right[index], leaf) + inheritance;
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? left[index] : right[index];
+		}
+
+		int sibling = index;
+		int oldParent = parent[sibling];
+		int newParent = allocate();
+		parent[newParent] = oldParent;
+		left[newParent] = sibling;
+		right[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+		if (oldParent == NULL) {
+			root = newParent;
+		} else if (left[oldParent] == sibling) {
+			left[oldParent] = newParent;
+		} else {
+			right[oldParent] = newParent;
+		}
+		refitUp(newParent);
+	}
+
+	private double childCost(int child, int leaf) {
+		double combined = unionPerimeter(child, leaf);
+		return isLeaf(child) ? combined : combined - perimeter(child);
+	}
+
+	private void remove(int leaf) {
+		if (leaf == root) {
+			root = NULL;
+			return;
+		}
+		int oldParent = parent[leaf];
+		int grandParent = parent[oldParent];
+		int sibling = left[oldParent] == leaf ? right[oldParent] : left[oldParent];
+		if (grandParent == NULL) {
+			root = sibling;
+			parent[sibling] = NULL;
+		} else {
+			if (left[grandParent] == oldParent) {
+				left[grandParent] = sibling;
+			} else {
+				right[grandParent] = sibling;
+			}
+			parent[sibling] = grandParent;
+			refitUp(grandParent);
+		}
+		release(oldParent);
+		parent[leaf] = NULL;
+	}
+
+	/**
+	 * balance and refit every node from given node up to the root
+	 */
+	private void refitUp(int node) {
+		while (node != NULL) {
+			node = balance(node);
+			refit(node);
+			node = parent[node];
+		}
+	}
+
+	/**
+	 * rotate a child up if one side of the given node is more than one level higher than the other.
+	 * @return the node which is now at the place of given node
+	 */
+	private int balance(int a) {
+		if (isLeaf(a) || height[a] < 2) {
+			return a;
+		}
+		int b = left[a], c = right[a];
+		int difference = height[c] - height[b];
+		if (difference > 1) {
+			return rotate(a, c, b, false);
+		}
+		if (difference < -1) {
+			return rotate(a, b, c, true);
+		}
+		return a;
+	}
+
+	/**
+	 * move up the higher child of a. the lower child of the higher child takes its place under a.
+	 * @param a - node to rotate
+	 * @param high - higher child of a
+	 * @param low - other child of a
+	 * @param highIsLeft - true if high is the left child of a
+	 * @return high, now at the place of a
+	 */
+	private int rotate(int a, int high, int low, boolean highIsLeft) {
+		int f = left[high], g = right[high];
+
+		left[high] = a;
+		parent[high] = parent[a];
+		parent[a] = high;
+		if (parent[high] == NULL) {
+			root = high;
+		} else if (left[parent[high]] == a) {
+			left[parent[high]] = high;
+		} else {
+			right[parent[high]] = high;
+		}
+
+		// the higher grandchild stays under high, the lower one moves under a
+		int keep = height[f] > height[g] ? f : g;
+		int give = keep == f ? g : f;
+		right[high] = keep;
+		if (highIsLeft) {
+			left[a] = give;
+		} else {
+			right[a] = give;
+		}
+		parent[give] = a;
+		refit(a);
+		refit(high);
+		return high;
+	}
+
+	@Override
+	public int nearestHit(double[] result, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		if (root == NULL) {
+			return -1;
+		}
+		double invX = 1 / dirX;
+		double invY = 1 / dirY;
+		int closestEdge = -1;
+		double closest = maxDistance;
+		int tests = 0;
+
+		int[] stack = stacks.get();
+		if (stack.length < height[root] + 2) {
+			stack = new int[height[root] + 2];
+			stacks.set(stack);
+		}
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			if (enter(node, startX, startY, dirX, dirY, invX, invY) >= closest) {
+				continue;
+			}
+			if (isLeaf(node)) {
+				tests += edges.shapeEnd(shape[node]) - edges.shapeStart(shape[node]);
+				for (int e = edges.shapeStart(shape[node]), end = edges.shapeEnd(shape[node]); e < end; e++) {
+					double distance = edges.intersect(e, startX, startY, dirX, dirY);
+					if (distance >= 0 && distance < closest) {
+						closest = distance;
+						closestEdge = e;
+					}
+				}
+			} else {
+				int a = left[node], b = right[node];
+				// push the further child first so the closer one is visited first and shrinks closest sooner
+				double aEnter = enter(a, startX, startY, dirX, dirY, invX, invY);
+				double bEnter = enter(b, startX, startY, dirX, dirY, invX, invY);
+				if (aEnter > bEnter) {
+					int temp = a;
+					a = b;
+					b = temp;
+					double tempEnter = aEnter;
+					aEnter = bEnter;
+					bEnter = tempEnter;
+				}
+				if (bEnter < closest)
+					stack[top++] = b;
+				if (aEnter < closest)
+					stack[top++] = a;
+			}
+		}
+		edgeTests.add(tests);
+		return edges.store(result, closestEdge, startX, startY, dirX, dirY);
+	}
+
+	/**
+	 * get the distance at which the ray enters the box of given node.
+	 * @return distance of entry, 0 if ray starts inside the box, {@link Double#MAX_VALUE} if box is missed
+	 */
+	private double enter(int node, double startX, double startY, double dirX, double dirY, double invX,
+			double invY) {
+		double tMin = 0, tMax = Double.MAX_VALUE;
+		if (dirX == 0) {
+			if (startX < minX[node] || startX > maxX[node])
+				return Double.MAX_VALUE;
+		} else {
+			double t1 = (minX[node] - startX) * invX;
+			double t2 = (maxX[node] - startX) * invX;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+		if (dirY == 0) {
+			if (startY < minY[node] || startY > maxY[node])
+				return Double.MAX_VALUE;
+		} else {
+			double t1 = (minY[node] - startY) * invY;
+			double t2 = (maxY[node] - startY) * invY;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+		return tMin <= tMax ? tMin : Double.MAX_VALUE;
+	}
+
+	/**
+	 * get the height of the tree, a single leaf has height 0
+	 * @return height of root
+	 */
+	public int getHeight() {
+		return root == NULL ? 0 : height[root];
+	}
+
+	/**
+	 * get number of shapes updated since the last build
+	 * @return number of calls to {@link DynamicAabbTree#update(int)}
+	 */
+	public long getMoveCount() {
+		return moves;
+	}
+
+	/**
+	 * get number of updated shapes which left their box and were inserted again since the last build
+	 * @return number of reinserts
+	 */
+	public long getReinsertCount() {
+		return reinserts;
+	}
+
+	@Override
+	public long sumEdgeTestsThenReset() {
+		return edgeTests.sumThenReset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Dynamic tree: %d shapes, height %d, %d of %d moves reinserted", leafOf.length,
+				getHeight(), reinserts, moves);
+	}
+}
@@ -0,0 +1,263 @@
+package raycast.engine;
+
+import java.nio.DoubleBuffer;
+import java.util.List;
+
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * <p>
+ * all edges of all {@link PolyShape}s flattened into parallel primitive arrays. an edge is stored as its
+ * start point and the delta to its end point, which is what the intersect calculation needs. scanning these
+ * arrays touches continuous memory instead of following references through the list of shapes.
+ * </p>
+ * <p>
+ * edges are numbered shape by shape in the order of the list. the edge of a shape with index i goes from
+ * point i to point i - 1, edge 0 goes from point 0 to the last point. edges of shape s are
+ * {@link EdgeBuffer#shapeStart(int)} to {@link EdgeBuffer#shapeEnd(int)} - 1.
+ * </p>
+ */
+public class EdgeBuffer {
+
+	private double[] x = new double[0];
+	private double[] y = new double[0];
+	private double[] dx = new double[0];
+	private double[] dy = new double[0];
+	private int size;
+
+	private int[] shapeStart = new int[1];
+	private int shapeCount;
+
+	/**
+	 * replace all edges with the edges of the given shapes. arrays are only created again if they are too small.
+	 * @param shapes - all shapes in the scene
+	 * @return the current instance of this object
+	 */
+	public EdgeBuffer build(List<PolyShape> shapes) {
+		int count = 0;
+		for (PolyShape shape : shapes) {
+			count += shape.pointCount();
+		}
+		if (x.length < count) {
+			x = new double[count];
+			y = new double[count];
+			dx = new double[count];
+			dy = new double[count];
+		}
+		if (shapeStart.length < shapes.size() + 1) {
+			shapeStart = new int[shapes.size() + 1];
+		}
+
+		int edge = 0, s = 0;
+		for (PolyShape shape : shapes) {
+			shapeStart[s++] = edge;
+			for (int i = 0, j = shape.pointCount() - 1; i < shape.pointCount(); j = i++, edge++) {
+				x[edge] = shape.pX(i);
+				y[edge] = shape.pY(i);
+				dx[edge] = shape.pX(j) - shape.pX(i);
+				dy[edge] = shape.pY(j) - shape.pY(i);
+			}
+		}
+		shapeStart[s] = edge;
+		shapeCount = s;
+		size = edge;
+		return this;
+	}
+
+	/**
+	 * replace all edges with the edges of polygons stored as separate x and y buffers, such as the vertex
+	 * arrays of a scene file. the points are copied in bulk straight into the arrays of this buffer without
+	 * creating any {@link PolyShape}. values are read with absolute gets so positions of the buffers are not changed.
+	 * @param xs - x of all points
+	 * @param ys - y of all points
+	 * @param starts - index of first point of each polygon, polygon s has points starts[s] to starts[s + 1] - 1
+	 * @param polygons - number of polygons, starts must have polygons + 1 values
+	 * @return the current instance of this object
+	 */
+	public EdgeBuffer build(DoubleBuffer xs, DoubleBuffer ys, int[] starts, int polygons) {
+		int count = starts[polygons] - starts[0];
+		if (x.length < count) {
+			x = new double[count];
+			y = new double[count];
+			dx = new double[count];
+			dy = new double[count];
+		}
+		if (shapeStart.length < polygons + 1) {
+			shapeStart = new int[polygons + 1];
+		}
+		DoubleBuffer view = xs.duplicate();
+		view.position(starts[0]);
+		view.get(x, 0, count);
+		view = ys.duplicate();
+		view.position(starts[0]);
+		view.get(y, 0, count);
+
+		for (int s = 0; s < polygons; s++) {
+			int first = starts[s] - starts[0], end = starts[s + 1] - starts[0];
+			shapeStart[s] = first;
+			for (int i = first, j = end - 1; i < end; j = i++) {
+				dx[i] = x[j] - x[i];
+				dy[i] = y[j] - y[i];
+			}
+		}
+		shapeStart[polygons] = count;
+		shapeCount = polygons;
+		size = count;
+		return this;
+	}
+
+	/**
+	 * write the edges of one shape again after its points have changed, for example after
+	 * {@link PolyShape#translate(double, double)}. edges of other shapes are not touched.
+	 * @param s - index of shape in the list this buffer was built from
+	 * @param shape - the shape with its new points
+	 * @return false if the number of points has changed and the whole buffer must be built again
+	 */
+	public boolean update(int s, PolyShape shape) {
+		if (s < 0 || s >= shapeCount || shape.pointCount() != shapeStart[s + 1] - shapeStart[s]) {
+			return false;
+		}
+		int edge = shapeStart[s];
+		for (int i = 0, j = shape.pointCount() - 1; i < shape.pointCount(); j = i++, edge++) {
+			x[edge] = shape.pX(i);
+			y[edge] = shape.pY(i);
+			dx[edge] = shape.pX(j) - shape.pX(i);
+			dy[edge] = shape.pY(j) - shape.pY(i);
+		}
+		return true;
+	}
+
+	/**
+	 * get the distance at which the given ray hits the given edge.
+	 * @param e - edge index
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param dirX - x of unit direction of ray
+	 * @param dirY - y of unit direction of ray
+	 * @return distance of hit, -1 if ray does not hit the edge
+	 */
+	public double intersect(int e, double startX, double startY, double dirX, double dirY) {
+		double qpx = startX - x[e];
+		double qpy = startY - y[e];
+		double rs = dirX * dy[e] - dx[e] * dirY;
+		double rayScaler = (dx[e] * qpy - qpx * dy[e]) / rs;
+		double segmentScaler = (dirX * qpy - qpx * dirY) / rs;
+		// when rs is 0 the scalers are infinite or NaN and fail the checks below
+		return rayScaler >= 0 && segmentScaler >= 0 && segmentScaler <= 1 ? rayScaler : -1;
+	}
+
+	/**
+	 * store the intersect of given ray and edge in result using the layout of
+	 * {@link utility.IntersectUtil#getIntersection}.
+	 * @param result - array of at least size 4
+	 * @param e - edge index, if negative nothing is stored
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param dirX - x of unit direction of ray
+	 * @param dirY - y of unit direction of ray
+	 * @return the given edge index
+	 */
+	public int store(double[] result, int e, double startX, double startY, double dirX, double dirY) {
+		if (e >= 0) {
+			double qpx = startX - x[e];
+			double qpy = startY - y[e];
+			double rs = dirX * dy[e] - dx[e] * dirY;
+			double rayScaler = (dx[e] * qpy - qpx * dy[e]) / rs;
+			result[0] = startX + dirX * rayScaler;
+			result[1] = startY + dirY * rayScaler;
+			result[2] = rayScaler;
+			result[3] = (dirX * qpy - qpx * dirY) / rs;
+		}
+		return e;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int shapeCount() {
+		return shapeCount;
+	}
+
+	/**
+	 * get the index of first edge of given shape
+	 * @param shape - index of shape in the list
+	 * @return index of first edge
+	 */
+	public int shapeStart(int shape) {
+		return shapeStart[shape];
+	}
+
+	/**
+	 * get the index after the last edge of given shape
+	 * @param shape - index of shape in the list
+	 * @return index after last edge
+	 */
+	public int shapeEnd(int shape) {
+		return shapeStart[shape + 1];
+	}
+
+	public double x(int e) {
+		return x[e];
+	}
+
+	public double y(int e) {
+		return y[e];
+	}
+
+	public double dx(int e) {
+		return dx[e];
+	}
+
+	public double dy(int e) {
+		return dy[e];
+	}
+
+	public double minX(int e) {
+		return Math.min(x[e], x[e] + dx[e]);
+	}
+
+	public double minY(int e) {
+		return Math.min(y[e], y[e] + dy[e]);
+	}
+
+	public double maxX(int e) {
+		return Math.max(x[e], x[e] + dx[e]);
+	}
+
+	public double maxY(int e) {
+		return Math.max(y[e], y[e] + dy[e]);
+	}
+
+	/**
+	 * get the backing array of start x, only the first {@link EdgeBuffer#size()} are valid.
+	 * @return array of start x
+	 */
+	public double[] xs() {
+		return x;
+	}
+
+	/**
+	 * get the backing array of start y, only the first {@link EdgeBuffer#size()} are valid.
+	 * @return array of start y
+	 */
+	public double[] ys() {
+		return y;
+	}
+
+	/**
+	 * get the backing array of delta x, only the first {@link EdgeBuffer#size()} are valid.
+	 * @return array of delta x
+	 */
+	public double[] dxs() {
+		return dx;
+	}
+
+	/**
+	 * get the backing array of delta y, only the first {@link EdgeBuffer#size()} are valid.
+	 * @return array of delta y
+	 */
+	public double[] dys() {
+		return dy;
+	}
+}
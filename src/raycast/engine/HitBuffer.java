@@ -0,0 +1,130 @@
+package raycast.engine;
+
+/**
+ * <p>
+ * this class holds the result of one ray cast in primitive arrays. every ray has an index and at that index
+ * the end point (x, y), the distance from the light source and the index of the edge hit are stored.
+ * </p>
+ * <p>
+ * the arrays only grow, they are never shrunk, so the same buffer can be reused every frame without
+ * creating garbage. only the first {@link HitBuffer#size()} elements are valid.
+ * </p>
+ */
+public class HitBuffer {
+
+	private double[] x;
+	private double[] y;
+	private double[] distance;
+	private int[] edge;
+	private int size;
+
+	/**
+	 * create a new buffer with given initial capacity
+	 * @param capacity - initial number of rays this buffer can hold
+	 */
+	public HitBuffer(int capacity) {
+		x = new double[capacity];
+		y = new double[capacity];
+		distance = new double[capacity];
+		edge = new int[capacity];
+	}
+
+	/**
+	 * create a new buffer with a capacity for 360 * 3 rays
+	 */
+	public HitBuffer() {
+		this(360 * 3);
+	}
+
+	/**
+	 * make sure the buffer can hold the given number of rays and set the size to it.
+	 * old values are not preserved when buffer grows.
+	 * @param count - number of rays
+	 * @return the current instance of this object
+	 */
+	public HitBuffer reset(int count) {
+		if (count > x.length) {
+			x = new double[count];
+			y = new double[count];
+			distance = new double[count];
+			edge = new int[count];
+		}
+		size = count;
+		return this;
+	}
+
+	/**
+	 * store the end point of a ray
+	 * @param index - index of ray
+	 * @param hitX - x of end point
+	 * @param hitY - y of end point
+	 * @param dist - distance of end point from the light source
+	 */
+	public void set(int index, double hitX, double hitY, double dist) {
+		set(index, hitX, hitY, dist, -1);
+	}
+
+	/**
+	 * store the end point of a ray and the edge it hit
+	 * @param index - index of ray
+	 * @param hitX - x of end point
+	 * @param hitY - y of end point
+	 * @param dist - distance of end point from the light source
+	 * @param hitEdge - index of edge in {@link EdgeBuffer}, -1 if the ray hit nothing
+	 */
+	public void set(int index, double hitX, double hitY, double dist, int hitEdge) {
+		x[index] = hitX;
+		y[index] = hitY;
+		distance[index] = dist;
+		edge[index] = hitEdge;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double x(int index) {
+		return x[index];
+	}
+
+	public double y(int index) {
+		return y[index];
+	}
+
+	public double distance(int index) {
+		return distance[index];
+	}
+
+	/**
+	 * get the edge hit by a ray
+	 * @param index - index of ray
+	 * @return index of edge in {@link EdgeBuffer}, -1 if the ray hit nothing
+	 */
+	public int edge(int index) {
+		return edge[index];
+	}
+
+	/**
+	 * get the backing array of x values, only the first {@link HitBuffer#size()} are valid.
+	 * @return array of x values
+	 */
+	public double[] xs() {
+		return x;
+	}
+
+	/**
+	 * get the backing array of y values, only the first {@link HitBuffer#size()} are valid.
+	 * @return array of y values
+	 */
+	public double[] ys() {
+		return y;
+	}
+
+	/**
+	 * get the backing array of distances, only the first {@link HitBuffer#size()} are valid.
+	 * @return array of distances
+	 */
+	public double[] distances() {
+		return distance;
+	}
+}
@@ -0,0 +1,113 @@
+package raycast.engine;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * <p>
+ * test one ray against a block of edges of an {@link EdgeBuffer} at a time. the work is split in two loops:
+ * the first only does arithmetic on the arrays and writes the ray and segment scaler of every edge to scratch
+ * arrays. it has no branches, which makes it a candidate for SIMD instructions. the second loop picks the
+ * closest valid hit out of the scratch arrays. the scalers are computed with the same operations as
+ * {@link BruteForceAccelerator} so both always return the same edge.
+ * </p>
+ * <p>
+ * {@link IntersectKernel#create()} returns a VectorIntersectKernel which tests many edges per instruction
+ * with the jdk.incubator.vector module if that class is on the class path and the module is present, else
+ * this scalar kernel. the vector kernel lives in the src-vector folder as it only compiles with
+ * {@code --add-modules jdk.incubator.vector}.
+ * </p>
+ * <p>
+ * an instance holds scratch arrays so it must only be used by one thread at a time.
+ * </p>
+ */
+public class IntersectKernel {
+
+	/**
+	 * number of edges tested per block, small enough for the scratch arrays to stay in cache
+	 */
+	public static final int BLOCK_SIZE = 512;
+
+	private static final String VECTOR_KERNEL = "raycast.engine.VectorIntersectKernel";
+	/**
+	 * constructor of the vector kernel, null if it can not be loaded
+	 */
+	private static final Constructor<? extends IntersectKernel> VECTOR_CONSTRUCTOR = findVectorKernel();
+
+	private final double[] rayScalers = new double[BLOCK_SIZE];
+	private final double[] segmentScalers = new double[BLOCK_SIZE];
+
+	private static Constructor<? extends IntersectKernel> findVectorKernel() {
+		try {
+			Constructor<? extends IntersectKernel> constructor = Class.forName(VECTOR_KERNEL)
+					.asSubclass(IntersectKernel.class).getDeclaredConstructor();
+			// creating one loads the vector classes, which fails if the module is missing
+			constructor.newInstance();
+			return constructor;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * create the fastest kernel available on this JVM
+	 * @return new vector kernel if available, else new scalar kernel
+	 */
+	public static IntersectKernel create() {
+		if (VECTOR_CONSTRUCTOR != null) {
+			try {
+				return VECTOR_CONSTRUCTOR.newInstance();
+			} catch (ReflectiveOperationException e) {
+				// loaded once already, fall back to scalar if it fails now
+			}
+		}
+		return new IntersectKernel();
+	}
+
+	/**
+	 * find the closest edge with index from (inclusive) to (exclusive) which is hit closer than maxDistance.
+	 * @param edges - edges to test
+	 * @param from - first edge index
+	 * @param to - index after the last edge
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param dirX - x of unit direction of ray
+	 * @param dirY - y of unit direction of ray
+	 * @param maxDistance - hits at or further than this distance are ignored
+	 * @return index of closest edge, else -1
+	 */
+	public int nearest(EdgeBuffer edges, int from, int to, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		double[] x = edges.xs(), y = edges.ys(), dx = edges.dxs(), dy = edges.dys();
+		double[] t = rayScalers, u = segmentScalers;
+		int closestEdge = -1;
+		double closest = maxDistance;
+
+		for (int block = from; block < to; block += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, to - block);
+			for (int i = 0; i < length; i++) {
+				int e = block + i;
+				double qpx = startX - x[e];
+				double qpy = startY - y[e];
+				double rs = dirX * dy[e] - dx[e] * dirY;
+				t[i] = (dx[e] * qpy - qpx * dy[e]) / rs;
+				u[i] = (dirX * qpy - qpx * dirY) / rs;
+			}
+			for (int i = 0; i < length; i++) {
+				// parallel edges have infinite or NaN scalers which fail these checks
+				if (t[i] >= 0 && t[i] < closest && u[i] >= 0 && u[i] <= 1) {
+					closest = t[i];
+					closestEdge = block + i;
+				}
+			}
+		}
+		return closestEdge;
+	}
+
+	/**
+	 * get number of edges tested by one instruction
+	 * @return 1 for the scalar kernel
+	 */
+	public int lanes() {
+		return 1;
+	}
+}
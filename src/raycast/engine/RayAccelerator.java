@@ -0,0 +1,90 @@
+package raycast.engine;
+
+import utility.IntersectUtil;
+
+/**
+ * <p>
+ * a structure which answers the question "what is the closest edge this ray hits". it is built once from
+ * an {@link EdgeBuffer} and must be built again with {@link RayAccelerator#build(EdgeBuffer)} every time
+ * the shapes change.
+ * </p>
+ * <p>
+ * the index of the hit edge in the {@link EdgeBuffer} is returned by {@link RayAccelerator#nearestHit}.
+ * </p>
+ * <p>
+ * once built, {@link RayAccelerator#nearestHit} may be called from many threads at once so it must not
+ * write to any shared state.
+ * </p>
+ */
+public interface RayAccelerator {
+
+	/**
+	 * build the structure from given edges. the buffer is kept and used by later queries.
+	 * @param edges - all edges in the scene
+	 */
+	public void build(EdgeBuffer edges);
+
+	/**
+	 * set the size of the area in which rays are cast. accelerators which do not depend on
+	 * the area can ignore it.
+	 * @param width - width of the area
+	 * @param height - height of the area
+	 * @return true if the accelerator must be built again
+	 */
+	public default boolean setArea(double width, double height) {
+		return false;
+	}
+
+	/**
+	 * prepare for a set of rays which all start at the given light source, such as one frame. accelerators
+	 * which depend on the light source must still return correct hits for rays from any other point.
+	 * this must not be called while {@link RayAccelerator#nearestHit} is running on another thread.
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 */
+	public default void prepare(double startX, double startY) {
+	}
+
+	/**
+	 * check if queries are only fast for rays which start at the light source given to
+	 * {@link RayAccelerator#prepare(double, double)}. such an accelerator can not be shared by threads which
+	 * compute different light sources at the same time.
+	 * @return true if {@link RayAccelerator#prepare(double, double)} should be called for every light source
+	 */
+	public default boolean isPreparedPerLight() {
+		return false;
+	}
+
+	/**
+	 * update the structure after the edges of one shape were written again in place with
+	 * {@link EdgeBuffer#update(int, raycast.entity.geometry.PolyShape)}. accelerators which can not be
+	 * updated return false and are built again.
+	 * @param shape - index of changed shape in the {@link EdgeBuffer}
+	 * @return true if the structure is up to date, false if it must be built again
+	 */
+	public default boolean update(int shape) {
+		return false;
+	}
+
+	/**
+	 * find the closest edge hit by the given ray which is closer than maxDistance.
+	 * direction must be a unit vector so the intersect scaler is the distance.
+	 * @param result - array of at least size 4, same layout as {@link IntersectUtil#getIntersection}
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param dirX - x of unit direction of ray
+	 * @param dirY - y of unit direction of ray
+	 * @param maxDistance - hits at or further than this distance are ignored
+	 * @return index of hit edge and data stored in result, else -1
+	 */
+	public int nearestHit(double[] result, double startX, double startY, double dirX, double dirY, double maxDistance);
+
+	/**
+	 * get the number of edges tested for intersection by {@link RayAccelerator#nearestHit} since the last
+	 * call and start counting from zero again. accelerators which do not count return 0.
+	 * @return number of edge tests
+	 */
+	public default long sumEdgeTestsThenReset() {
+		return 0;
+	}
+}
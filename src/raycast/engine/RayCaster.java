@@ -0,0 +1,430 @@
+package raycast.engine;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * <p>
+ * this class computes the intersections of a fan of rays with a list of {@link PolyShape}s.
+ * it does not draw anything and does not need a JavaFX canvas, the result is stored in a {@link HitBuffer}
+ * which can then be drawn by an animator or used by any other code.
+ * </p>
+ * <p>
+ * rays are evenly distributed over 360 degrees starting from angle 0. if a ray does not hit any shape
+ * its end point is placed at {@link RayCaster#getRayLength()} from the light source. a ray that hits a
+ * shape further than that is still cut at the shape. ray directions are read from a {@link DirectionTable}
+ * which is only computed again when the ray count changes.
+ * </p>
+ * <p>
+ * the closest hit is found by a {@link RayAccelerator} over an {@link EdgeBuffer} of all shape edges. both
+ * are built lazily on the next cast after {@link RayCaster#invalidate()} is called or when the list of shapes
+ * is replaced or resized.
+ * </p>
+ * <p>
+ * if {@link RayCaster#setParallelism(int)} is more than 1 the rays are split in chunks of
+ * {@link RayCaster#CHUNK_SIZE} which are cast on a {@link ForkJoinPool}. every chunk writes to its own
+ * range of the {@link HitBuffer} so no synchronization is needed. {@link RayCaster#shutdown()} must be
+ * called to release the threads when the caster is no longer used.
+ * </p>
+ * <p>
+ * with {@link RayCaster#setCoherent(boolean)} a cast into the same {@link HitBuffer} is skipped when neither
+ * the light, the rays nor the edges have changed since the last cast, the buffer already holds the result.
+ * </p>
+ */
+public class RayCaster {
+
+	/**
+	 * default length of a ray which does not hit anything
+	 */
+	public static final double DEFAULT_RAY_LENGTH = 700;
+
+	/**
+	 * number of rays cast by one task when casting in parallel
+	 */
+	public static final int CHUNK_SIZE = 256;
+
+	private double rayLength;
+	private double[] intersectResult = new double[4];
+
+	private DirectionTable directions = new DirectionTable();
+
+	private int parallelism = 1;
+	private ForkJoinPool pool;
+
+	private EdgeBuffer edges = new EdgeBuffer();
+	private RayAccelerator accelerator;
+	private boolean dirty;
+	private List<PolyShape> builtShapes;
+	private int builtSize;
+	/**
+	 * last {@link ShapeChanges#version()} applied by {@link RayCaster#update(List, ShapeChanges)}
+	 */
+	private long changesVersion = -1;
+	/**
+	 * incremented every time the edges change, see {@link RayCaster#getVersion()}
+	 */
+	private long version;
+	private double width, height;
+
+	private boolean coherent;
+	/**
+	 * state of the last cast, a cast is skipped only if it matches
+	 */
+	private HitBuffer lastHits;
+	private double lastX, lastY, lastRayLength;
+	private int lastRayCount;
+	private long lastVersion = -1;
+	private int raysCast;
+
+	public RayCaster() {
+		this(new BruteForceAccelerator());
+	}
+
+	public RayCaster(RayAccelerator accelerator) {
+		rayLength = DEFAULT_RAY_LENGTH;
+		setAccelerator(accelerator);
+	}
+
+	public RayAccelerator getAccelerator() {
+		return accelerator;
+	}
+
+	/**
+	 * get the edges the accelerator was last built from
+	 * @return {@link EdgeBuffer} of this caster
+	 */
+	public EdgeBuffer getEdges() {
+		return edges;
+	}
+
+	/**
+	 * replace the accelerator, it will be built on the next cast.
+	 * @param accelerator - new {@link RayAccelerator}
+	 * @return the current instance of this object
+	 */
+	public RayCaster setAccelerator(RayAccelerator accelerator) {
+		this.accelerator = accelerator;
+		accelerator.setArea(width, height);
+		invalidate();
+		return this;
+	}
+
+	/**
+	 * set the size of the area in which rays are cast, usually the size of the canvas.
+	 * accelerator is built again on the next cast if it depends on the area.
+	 * @param width - width of the area
+	 * @param height - height of the area
+	 * @return the current instance of this object
+	 */
+	public RayCaster setArea(double width, double height) {
+		this.width = width;
+		this.height = height;
+		if (accelerator.setArea(width, height)) {
+			invalidate();
+		}
+		return this;
+	}
+
+	/**
+	 * get the table of ray directions used by {@link RayCaster#cast}
+	 * @return {@link DirectionTable} of this caster
+	 */
+	public DirectionTable getDirections() {
+		return directions;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * set the number of threads used to cast rays. 1 casts all rays on the calling thread.
+	 * @param parallelism - number of threads, at least 1
+	 * @return the current instance of this object
+	 */
+	public RayCaster setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		if (this.parallelism != parallelism) {
+			shutdown();
+			this.parallelism = parallelism;
+		}
+		return this;
+	}
+
+	/**
+	 * release the threads used for parallel casting. they are created again on the next parallel cast.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * notify this caster that shapes have changed and the accelerator must be built again.
+	 */
+	public void invalidate() {
+		dirty = true;
+	}
+
+	/**
+	 * build the edges and accelerator if shapes have changed since the last build.
+	 * @param shapes - shapes to test the rays against
+	 */
+	public void update(List<PolyShape> shapes) {
+		if (dirty || shapes != builtShapes || shapes.size() != builtSize) {
+			edges.build(shapes);
+			accelerator.build(edges);
+			builtShapes = shapes;
+			builtSize = shapes.size();
+			dirty = false;
+			version++;
+		}
+	}
+
+	/**
+	 * get a number which changes every time the edges are built or updated. results computed from the
+	 * edges can be kept as long as this number stays the same.
+	 * @return version of edges
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * use edges built somewhere else, for example a snapshot of the shapes taken on another thread. the
+	 * accelerator is built again if the edges are not the ones last used or the caster is invalid. the given
+	 * buffer is kept and must not change while this caster uses it.
+	 * @param edges - edges to test the rays against
+	 */
+	public void update(EdgeBuffer edges) {
+		if (dirty || edges != this.edges) {
+			this.edges = edges;
+			accelerator.build(edges);
+			builtShapes = null;
+			dirty = false;
+			version++;
+		}
+	}
+
+	/**
+	 * apply the shapes moved since the last update and build the edges and accelerator if needed. moved
+	 * shapes are written again in the {@link EdgeBuffer} and passed to {@link RayAccelerator#update(int)}, so
+	 * an accelerator which supports updates is not built again. everything is built again if shapes were
+	 * added or removed or if this caster has missed changes which were cleared.
+	 * @param shapes - shapes to test the rays against
+	 * @param changes - shapes changed since the last clear
+	 */
+	public void update(List<PolyShape> shapes, ShapeChanges changes) {
+		if (changesVersion != changes.version()) {
+			boolean built = !dirty && shapes == builtShapes && shapes.size() == builtSize;
+			if (built && changesVersion >= changes.since() && !changes.isStructural()) {
+				for (int i = 0; i < changes.size() && !dirty; i++) {
+					int shape = changes.shape(i);
+					dirty = !edges.update(shape, shapes.get(shape)) || !accelerator.update(shape);
+				}
+				version++;
+			} else {
+				dirty = true;
+			}
+			changesVersion = changes.version();
+		}
+		update(shapes);
+	}
+
+	public double getRayLength() {
+		return rayLength;
+	}
+
+	public RayCaster setRayLength(double rayLength) {
+		this.rayLength = rayLength;
+		return this;
+	}
+
+	/**
+	 * cast rayCount rays from (startX, startY) and store the closest intersect of each ray in hits.
+	 * @param shapes - shapes to test the rays against
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param rayCount - number of rays evenly distributed over 360 degrees
+	 * @param hits - buffer to store the result in
+	 * @return the given hits buffer
+	 */
+	public HitBuffer cast(List<PolyShape> shapes, double startX, double startY, int rayCount, HitBuffer hits) {
+		update(shapes);
+		return cast(startX, startY, rayCount, hits);
+	}
+
+	/**
+	 * cast rayCount rays from (startX, startY) against the edges of the last update and store the closest
+	 * intersect of each ray in hits.
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param rayCount - number of rays evenly distributed over 360 degrees
+	 * @param hits - buffer to store the result in
+	 * @return the given hits buffer
+	 */
+	public HitBuffer cast(double startX, double startY, int rayCount, HitBuffer hits) {
+		boolean unchanged = coherent && hits == lastHits && hits.size() == rayCount && rayCount == lastRayCount
+				&& rayLength == lastRayLength && version == lastVersion;
+		if (unchanged && startX == lastX && startY == lastY) {
+			raysCast = 0;
+			return hits;
+		}
+		accelerator.prepare(startX, startY);
+		directions.update(rayCount);
+		hits.reset(rayCount);
+
+		if (parallelism > 1 && rayCount > CHUNK_SIZE) {
+			if (pool == null) {
+				pool = new ForkJoinPool(parallelism);
+			}
+			pool.invoke(new CastTask(startX, startY, 0, rayCount, hits));
+		} else {
+			castRange(intersectResult, startX, startY, 0, rayCount, hits);
+		}
+		lastHits = hits;
+		lastX = startX;
+		lastY = startY;
+		lastRayCount = rayCount;
+		lastRayLength = rayLength;
+		lastVersion = version;
+		raysCast = rayCount;
+		return hits;
+	}
+
+	public boolean isCoherent() {
+		return coherent;
+	}
+
+	/**
+	 * reuse the previous cast into the same {@link HitBuffer} if nothing it depends on has changed
+	 * @param coherent - true to skip casts which would not change anything
+	 * @return the current instance of this object
+	 */
+	public RayCaster setCoherent(boolean coherent) {
+		this.coherent = coherent;
+		return this;
+	}
+
+	/**
+	 * get the number of rays cast by the last call to {@link RayCaster#cast}
+	 * @return number of rays, 0 if the cast was skipped because nothing changed
+	 */
+	public int getRaysCast() {
+		return raysCast;
+	}
+
+	/**
+	 * run the given action once for every index from 0 (inclusive) to count (exclusive). if parallelism is
+	 * more than 1 the indices are split in tasks of at most taskSize which run on the same pool as
+	 * {@link RayCaster#cast}, otherwise all run on the calling thread. action is called from many threads,
+	 * it must only write to data owned by its index.
+	 * @param count - number of indices
+	 * @param taskSize - number of indices run by one task
+	 * @param action - called with every index
+	 */
+	public void forEach(int count, int taskSize, IntConsumer action) {
+		if (parallelism > 1 && count > taskSize) {
+			if (pool == null) {
+				pool = new ForkJoinPool(parallelism);
+			}
+			pool.invoke(new RangeTask(0, count, taskSize, action));
+		} else {
+			for (int i = 0; i < count; i++) {
+				action.accept(i);
+			}
+		}
+	}
+
+	/**
+	 * cast the rays with index from (inclusive) to (exclusive) using the directions in the table.
+	 */
+	private void castRange(double[] result, double startX, double startY, int from, int to, HitBuffer hits) {
+		for (int ray = from; ray < to; ray++) {
+			castRay(result, ray, startX, startY, directions.dirX(ray), directions.dirY(ray), hits);
+		}
+	}
+
+	/**
+	 * find the closest intersect of one ray with given direction and store it in hits at given index.
+	 * direction must be a unit vector so the intersect scaler is the distance.
+	 */
+	private void castRay(double[] result, int index, double startX, double startY, double dirX, double dirY,
+			HitBuffer hits) {
+		int edge = accelerator.nearestHit(result, startX, startY, dirX, dirY, Double.MAX_VALUE);
+		if (edge < 0) {
+			hits.set(index, startX + dirX * rayLength, startY + dirY * rayLength, rayLength, -1);
+		} else {
+			hits.set(index, result[0], result[1], result[2], edge);
+		}
+	}
+
+	/**
+	 * split the range of rays in half until it is no bigger than {@link RayCaster#CHUNK_SIZE}
+	 * then cast it with its own result array.
+	 */
+	private class CastTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double startX, startY;
+		private final int from, to;
+		private final HitBuffer hits;
+
+		CastTask(double startX, double startY, int from, int to, HitBuffer hits) {
+			this.startX = startX;
+			this.startY = startY;
+			this.from = from;
+			this.to = to;
+			this.hits = hits;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CHUNK_SIZE) {
+				castRange(new double[4], startX, startY, from, to, hits);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new CastTask(startX, startY, from, middle, hits),
+						new CastTask(startX, startY, middle, to, hits));
+			}
+		}
+	}
+
+	/**
+	 * split a range of indices in half until it is no bigger than taskSize then run the action on each
+	 */
+	private static class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to, taskSize;
+		private final IntConsumer action;
+
+		RangeTask(int from, int to, int taskSize, IntConsumer action) {
+			this.from = from;
+			this.to = to;
+			this.taskSize = taskSize;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= taskSize) {
+				for (int i = from; i < to; i++) {
+					action.accept(i);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RangeTask(from, middle, taskSize, action), new RangeTask(middle, to, taskSize, action));
+			}
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package raycast.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * a broad phase which skips whole shapes before testing their edges. for the light source given to
+ * {@link SectorCulling#prepare(double, double)} every shape gets the angular interval its bounding box covers
+ * as seen from the light and the nearest distance of its box. a ray skips a shape if its angle is outside the
+ * interval, and stops looking once the closest hit found is nearer than the box of the next shape.
+ * shapes are sorted by distance so the closest shapes are tested first.
+ * </p>
+ * <p>
+ * the circle around the light is split in {@link SectorCulling#SECTORS} equal sectors, every sector lists the
+ * shapes whose interval overlaps it. a ray only looks at the shapes in the list of its own sector.
+ * </p>
+ * <p>
+ * rays which do not start at the prepared light source test every edge. the number of shapes tested and
+ * culled since the last prepare are kept for display.
+ * </p>
+ */
+public class SectorCulling implements RayAccelerator {
+
+	/**
+	 * angular intervals are grown by this much so rays cast exactly at a box corner are not culled by rounding
+	 */
+	private static final double ANGLE_PADDING = 1e-9;
+
+	/**
+	 * number of sectors the circle around the light is split into
+	 */
+	public static final int SECTORS = 256;
+	private static final double SECTOR_ANGLE = 2 * Math.PI / SECTORS;
+
+	private EdgeBuffer edges;
+	private int shapeCount;
+	private double[] boxMinX = new double[0], boxMinY = new double[0];
+	private double[] boxMaxX = new double[0], boxMaxY = new double[0];
+
+	private double preparedX = Double.NaN, preparedY = Double.NaN;
+	/**
+	 * shape indices sorted by nearest distance to prepared light, the arrays below are in the same order
+	 */
+	private int[] order = new int[0];
+	/**
+	 * nearest distance of box rounded down, so it never overestimates
+	 */
+	private double[] near = new double[0];
+	/**
+	 * angle toward center of box and interval around it covered by the box
+	 */
+	private double[] center = new double[0], lower = new double[0], upper = new double[0];
+	private long[] keys = new long[0];
+	/**
+	 * entries of sector k are sectorEntries[sectorStart[k]] to sectorEntries[sectorStart[k + 1] - 1], each
+	 * an index into the sorted arrays above. entries of each sector are sorted by distance.
+	 */
+	private int[] sectorStart = new int[SECTORS + 1];
+	private int[] sectorEntries = new int[0];
+
+	private LongAdder tested = new LongAdder();
+	private LongAdder culledByAngle = new LongAdder();
+	private LongAdder culledByDistance = new LongAdder();
+	private LongAdder edgeTests = new LongAdder();
+
+	@Override
+	public void build(EdgeBuffer edges) {
+		this.edges = edges;
+		shapeCount = edges.shapeCount();
+		if (boxMinX.length < shapeCount) {
+			boxMinX = new double[shapeCount];
+			boxMinY = new double[shapeCount];
+			boxMaxX = new double[shapeCount];
+			boxMaxY = new double[shapeCount];
+			order = new int[shapeCount];
+			near = new double[shapeCount];
+			center = new double[shapeCount];
+			lower = new double[shapeCount];
+			upper = new double[shapeCount];
+			keys = new long[shapeCount];
+		}
+		for (int s = 0; s < shapeCount; s++) {
+			double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+			double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+			for (int e = edges.shapeStart(s), end = edges.shapeEnd(s); e < end; e++) {
+				minX = Math.min(minX, edges.minX(e));
+				minY = Math.min(minY, edges.minY(e));
+				maxX = Math.max(maxX, edges.maxX(e));
+				maxY = Math.max(maxY, edges.maxY(e));
+			}
+			boxMinX[s] = minX;
+			boxMinY[s] = minY;
+			boxMaxX[s] = maxX;
+			boxMaxY[s] = maxY;
+		}
+		preparedX = preparedY = Double.NaN;
+	}
+
+	@Override
+	public void prepare(double startX, double startY) {
+		for (int s = 0; s < shapeCount; s++) {
+			double dx = Math.max(0, Math.max(boxMinX[s] - startX, startX - boxMaxX[s]));
+			double dy = Math.max(0, Math.max(boxMinY[s] - startY, startY - boxMaxY[s]));
+			float distance = (float) Math.sqrt(dx * dx + dy * dy);
+			if (distance > Math.sqrt(dx * dx + dy * dy)) {
+				distance = Math.nextDown(distance);
+			}
+			// positive floats sort like their bits, so distance and shape index fit in one sortable long
+			keys[s] = (long) Float.floatToIntBits(distance) << 32 | s;
+		}
+		Arrays.sort(keys, 0, shapeCount);
+
+		for (int i = 0; i < shapeCount; i++) {
+			int s = (int) keys[i];
+			order[i] = s;
+			near[i] = Float.intBitsToFloat((int) (keys[i] >>> 32));
+			if (startX >= boxMinX[s] && startX <= boxMaxX[s] && startY >= boxMinY[s] && startY <= boxMaxY[s]) {
+				// light is inside the box, every direction can hit the shape
+				center[i] = 0;
+				lower[i] = -4;
+				upper[i] = 4;
+				continue;
+			}
+			double c = Math.atan2((boxMinY[s] + boxMaxY[s]) / 2 - startY, (boxMinX[s] + boxMaxX[s]) / 2 - startX);
+			double lo = 0, hi = 0;
+			for (int corner = 0; corner < 4; corner++) {
+				double x = (corner & 1) == 0 ? boxMinX[s] : boxMaxX[s];
+				double y = (corner & 2) == 0 ? boxMinY[s] : boxMaxY[s];
+				double offset = wrap(Math.atan2(y - startY, x - startX) - c);
+				lo = Math.min(lo, offset);
+				hi = Math.max(hi, offset);
+			}
+			center[i] = c;
+			lower[i] = lo - ANGLE_PADDING;
+			upper[i] = hi + ANGLE_PADDING;
+		}
+		fillSectors();
+		preparedX = startX;
+		preparedY = startY;
+		tested.reset();
+		culledByAngle.reset();
+		culledByDistance.reset();
+	}
+
+	/**
+	 * list every shape in each sector its interval overlaps. shapes are visited in order of distance
+	 * so every list is sorted by distance too.
+	 */
+	private void fillSectors() {
+		Arrays.fill(sectorStart, 0);
+		int total = 0;
+		for (int i = 0; i < shapeCount; i++) {
+			int first = firstSector(i), count = sectorCount(i);
+			for (int k = 0; k < count; k++) {
+				sectorStart[(first + k) % SECTORS]++;
+			}
+			total += count;
+		}
+		if (sectorEntries.length < total) {
+			sectorEntries = new int[total];
+		}
+		for (int k = 0, sum = 0; k <= SECTORS; k++) {
+			int sectorCount = sectorStart[k];
+			sectorStart[k] = sum;
+			sum += sectorCount;
+		}
+		for (int i = 0; i < shapeCount; i++) {
+			int first = firstSector(i), count = sectorCount(i);
+			for (int k = 0; k < count; k++) {
+				sectorEntries[sectorStart[(first + k) % SECTORS]++] = i;
+			}
+		}
+		// filling advanced every start to the start of the next sector, shift them back.
+		for (int k = SECTORS; k > 0; k--) {
+			sectorStart[k] = sectorStart[k - 1];
+		}
+		sectorStart[0] = 0;
+	}
+
+	private int firstSector(int i) {
+		return Math.floorMod((int) Math.floor((center[i] + lower[i] + Math.PI) / SECTOR_ANGLE), SECTORS);
+	}
+
+	private int sectorCount(int i) {
+		if (upper[i] - lower[i] >= Math.PI) {
+			return SECTORS;
+		}
+		int last = (int) Math.floor((center[i] + upper[i] + Math.PI) / SECTOR_ANGLE);
+		int start = (int) Math.floor((center[i] + lower[i] + Math.PI) / SECTOR_ANGLE);
+		return Math.min(SECTORS, last - start + 1);
+	}
+
+	private static int sector(double angle) {
+		return Math.min(SECTORS - 1, Math.max(0, (int) ((angle + Math.PI) / SECTOR_ANGLE)));
+	}
+
+	/**
+	 * wrap an angle difference to -PI to PI
+	 */
+	private static double wrap(double angle) {
+		if (angle > Math.PI)
+			return angle - 2 * Math.PI;
+		if (angle < -Math.PI)
+			return angle + 2 * Math.PI;
+		return angle;
+	}
+
+	@Override
+	public boolean isPreparedPerLight() {
+		return true;
+	}
+
+	@Override
+	public int nearestHit(double[] result, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		if (edges == null) {
+			return -1;
+		}
+		if (startX != preparedX || startY != preparedY) {
+			return testAll(result, startX, startY, dirX, dirY, maxDistance);
+		}
+		double angle = Math.atan2(dirY, dirX);
+		int closestEdge = -1;
+		double closest = maxDistance;
+		int shapesTested = 0, angleCulled = 0, edgesTested = 0;
+		int sector = sector(angle);
+		int entry = sectorStart[sector], end = sectorStart[sector + 1];
+		for (; entry < end; entry++) {
+			int i = sectorEntries[entry];
+			if (near[i] >= closest) {
+				break;
+			}
+			double offset = wrap(angle - center[i]);
+			if (offset < lower[i] || offset > upper[i]) {
+				angleCulled++;
+				continue;
+			}
+			shapesTested++;
+			int s = order[i];
+			for (int e = edges.shapeStart(s), last = edges.shapeEnd(s); e < last; e++) {
+				double distance = edges.intersect(e, startX, startY, dirX, dirY);
+				if (distance >= 0 && distance < closest) {
+					closest = distance;
+					closestEdge = e;
+				}
+			}
+			edgesTested += edges.shapeEnd(s) - edges.shapeStart(s);
+		}
+		tested.add(shapesTested);
+		// shapes outside this sector are culled by angle without being looked at
+		culledByAngle.add(angleCulled + shapeCount - (sectorStart[sector + 1] - sectorStart[sector]));
+		culledByDistance.add(end - entry);
+		edgeTests.add(edgesTested);
+		return edges.store(result, closestEdge, startX, startY, dirX, dirY);
+	}
+
+	/**
+	 * test every edge, used for rays which do not start at the prepared light source
+	 */
+	private int testAll(double[] result, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		int closestEdge = -1;
+		double closest = maxDistance;
+		for (int e = 0; e < edges.size(); e++) {
+			double distance = edges.intersect(e, startX, startY, dirX, dirY);
+			if (distance >= 0 && distance < closest) {
+				closest = distance;
+				closestEdge = e;
+			}
+		}
+		tested.add(shapeCount);
+		edgeTests.add(edges.size());
+		return edges.store(result, closestEdge, startX, startY, dirX, dirY);
+	}
+
+	/**
+	 * get number of shapes whose edges were tested since the last prepare
+	 * @return number of tested shapes, counted once per ray
+	 */
+	public long getTestedCount() {
+		return tested.sum();
+	}
+
+	/**
+	 * get number of shapes skipped since the last prepare because the ray points outside their interval
+	 * @return number of culled shapes, counted once per ray
+	 */
+	public long getAngleCulledCount() {
+		return culledByAngle.sum();
+	}
+
+	/**
+	 * get number of shapes skipped since the last prepare because a closer hit was already found
+	 * @return number of culled shapes, counted once per ray
+	 */
+	public long getDistanceCulledCount() {
+		return culledByDistance.sum();
+	}
+
+	@Override
+	public long sumEdgeTestsThenReset() {
+		return edgeTests.sumThenReset();
+	}
+
+	@Override
+	public String toString() {
+		long testedCount = getTestedCount(), angle = getAngleCulledCount(), distance = getDistanceCulledCount();
+		long total = Math.max(1, testedCount + angle + distance);
+		return String.format("Sector culling: %d shapes tested, culled %.1f%% by angle, %.1f%% by distance",
+				testedCount, angle * 100.0 / total, distance * 100.0 / total);
+	}
+}
@@ -0,0 +1,99 @@
+package raycast.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <p>
+ * the indices of shapes which were moved since the last {@link ShapeChanges#clear()}, usually since the last
+ * frame. a consumer such as {@link RayCaster} remembers the {@link ShapeChanges#version()} it has seen. if it
+ * has seen every change before the last clear it only needs to update the listed shapes, otherwise it must
+ * build everything again.
+ * </p>
+ * <p>
+ * adding or removing shapes can not be described by indices, it is recorded with
+ * {@link ShapeChanges#structural()} which tells every consumer to build everything again.
+ * </p>
+ */
+public class ShapeChanges {
+
+	private int[] shapes = new int[16];
+	private int size;
+	private BitSet listed = new BitSet();
+	private boolean structural;
+	private long version, since;
+
+	/**
+	 * record that the points of given shape have changed but not their number
+	 * @param shape - index of shape
+	 */
+	public void moved(int shape) {
+		version++;
+		if (!listed.get(shape)) {
+			listed.set(shape);
+			if (size == shapes.length) {
+				shapes = Arrays.copyOf(shapes, size * 2);
+			}
+			shapes[size++] = shape;
+		}
+	}
+
+	/**
+	 * record that shapes were added or removed
+	 */
+	public void structural() {
+		version++;
+		structural = true;
+	}
+
+	/**
+	 * forget all changes, consumers which have not seen all of them will build everything again
+	 */
+	public void clear() {
+		since = version;
+		structural = false;
+		listed.clear();
+		size = 0;
+	}
+
+	/**
+	 * get the number of changes recorded so far, it is never reset
+	 * @return version of changes
+	 */
+	public long version() {
+		return version;
+	}
+
+	/**
+	 * get the {@link ShapeChanges#version()} at the last {@link ShapeChanges#clear()}
+	 * @return version at last clear
+	 */
+	public long since() {
+		return since;
+	}
+
+	/**
+	 * check if shapes were added or removed since the last clear
+	 * @return true if list of shapes has changed
+	 */
+	public boolean isStructural() {
+		return structural;
+	}
+
+	/**
+	 * get number of moved shapes
+	 * @return number of shapes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * get index of moved shape
+	 * @param i - from 0 to {@link ShapeChanges#size()} - 1
+	 * @return index of shape in the list of shapes
+	 */
+	public int shape(int i) {
+		return shapes[i];
+	}
+}
@@ -0,0 +1,254 @@
+package raycast.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * a uniform grid of square cells over the map. every edge is stored in each cell it passes through, found
+ * with the same grid walk the rays use, so a long diagonal edge is only stored in a line of cells.
+ * a ray walks the grid cell by cell in the order it passes through them and stops at the first cell in which
+ * a hit is confirmed, that is the hit lies before the ray leaves the cell.
+ * </p>
+ * <p>
+ * cells are sized from the area given by {@link UniformGrid#setArea(double, double)} so on average there is
+ * about one edge per cell. this works best when many small shapes are spread evenly over the map.
+ * </p>
+ *
+ * @see <a href="http://www.cse.yorku.ca/~amana/research/grid.pdf">A Fast Voxel Traversal Algorithm for Ray Tracing</a>
+ */
+public class UniformGrid implements RayAccelerator {
+
+	/**
+	 * max number of cells on each axis
+	 */
+	public static final int MAX_CELLS = 1024;
+
+	/**
+	 * an edge closer than this to a cell corner, in units of the edge length, is also stored in both cells
+	 * beside the corner
+	 */
+	private static final double CORNER_TOLERANCE = 1e-9;
+
+	private double width, height;
+
+	private EdgeBuffer edges;
+	private int edgeCount;
+
+	private double originX, originY, cellSize;
+	private int cols, rows;
+	/**
+	 * edges of cell c are cellEdges[cellStart[c]] to cellEdges[cellStart[c + 1] - 1]
+	 */
+	private int[] cellStart;
+	private int[] cellEdges;
+	/**
+	 * number of edges tested, counted once per query so threads do not contend
+	 */
+	private LongAdder edgeTests = new LongAdder();
+
+	@Override
+	public boolean setArea(double width, double height) {
+		if (this.width == width && this.height == height) {
+			return false;
+		}
+		this.width = width;
+		this.height = height;
+		return true;
+	}
+
+	@Override
+	public void build(EdgeBuffer edges) {
+		this.edges = edges;
+		edgeCount = edges.size();
+
+		double minX = 0, minY = 0, maxX = Math.max(width, 1), maxY = Math.max(height, 1);
+		for (int e = 0; e < edgeCount; e++) {
+			minX = Math.min(minX, edges.minX(e));
+			minY = Math.min(minY, edges.minY(e));
+			maxX = Math.max(maxX, edges.maxX(e));
+			maxY = Math.max(maxY, edges.maxY(e));
+		}
+		originX = minX;
+		originY = minY;
+		cellSize = Math.sqrt(Math.max(width, 1) * Math.max(height, 1) / Math.max(edgeCount, 1));
+		cellSize = Math.max(cellSize, Math.max(maxX - minX, maxY - minY) / MAX_CELLS);
+		cols = Math.max(1, (int) Math.ceil((maxX - minX) / cellSize));
+		rows = Math.max(1, (int) Math.ceil((maxY - minY) / cellSize));
+
+		// count edges per cell, turn counts into start offsets, then fill.
+		cellStart = new int[cols * rows + 1];
+		for (int e = 0; e < edgeCount; e++) {
+			forEachCell(e, -1);
+		}
+		for (int c = 0, sum = 0; c <= cols * rows; c++) {
+			int cellCount = cellStart[c];
+			cellStart[c] = sum;
+			sum += cellCount;
+		}
+		cellEdges = new int[cellStart[cols * rows]];
+		for (int e = 0; e < edgeCount; e++) {
+			forEachCell(e, e);
+		}
+		// filling advanced every start to the start of the next cell, shift them back.
+		for (int c = cols * rows; c > 0; c--) {
+			cellStart[c] = cellStart[c - 1];
+		}
+		cellStart[0] = 0;
+	}
+
+	/**
+	 * visit every cell the edge passes through, walking the grid the same way {@link UniformGrid#nearestHit}
+	 * does. where the edge passes within {@link UniformGrid#CORNER_TOLERANCE} of a cell corner both cells
+	 * beside the corner are visited too, so rounding can not leave out a cell a ray may hit the edge in.
+	 * @param e - edge index
+	 * @param fill - if negative count the edge in cellStart, else store it in cellEdges
+	 */
+	private void forEachCell(int e, int fill) {
+		double x = edges.x(e), y = edges.y(e), dx = edges.dx(e), dy = edges.dy(e);
+		int c = col(x), r = row(y);
+		int endC = col(x + dx), endR = row(y + dy);
+		int stepC = dx > 0 ? 1 : -1;
+		int stepR = dy > 0 ? 1 : -1;
+		// same as the ray walk but in units of the edge, 0 at its start and 1 at its end.
+		double deltaX = dx == 0 ? Double.MAX_VALUE : cellSize / Math.abs(dx);
+		double deltaY = dy == 0 ? Double.MAX_VALUE : cellSize / Math.abs(dy);
+		double nextX = dx == 0 ? Double.MAX_VALUE : (originX + (dx > 0 ? c + 1 : c) * cellSize - x) / dx;
+		double nextY = dy == 0 ? Double.MAX_VALUE : (originY + (dy > 0 ? r + 1 : r) * cellSize - y) / dy;
+		addToCell(c, r, fill);
+		while ((c != endC || r != endR) && Math.min(nextX, nextY) <= 1 + CORNER_TOLERANCE) {
+			if (Math.abs(nextX - nextY) <= CORNER_TOLERANCE) {
+				addToCell(c + stepC, r, fill);
+				addToCell(c, r + stepR, fill);
+				c += stepC;
+				r += stepR;
+				nextX += deltaX;
+				nextY += deltaY;
+			} else if (nextX < nextY) {
+				c += stepC;
+				nextX += deltaX;
+			} else {
+				r += stepR;
+				nextY += deltaY;
+			}
+			if (c < 0 || c >= cols || r < 0 || r >= rows) {
+				return;
+			}
+			addToCell(c, r, fill);
+		}
+	}
+
+	/**
+	 * count or store an edge in one cell, cells outside the grid are ignored
+	 */
+	private void addToCell(int c, int r, int fill) {
+		if (c < 0 || c >= cols || r < 0 || r >= rows) {
+			return;
+		}
+		int cell = r * cols + c;
+		if (fill < 0) {
+			cellStart[cell]++;
+		} else {
+			cellEdges[cellStart[cell]++] = fill;
+		}
+	}
+
+	private int col(double x) {
+		return Math.min(cols - 1, Math.max(0, (int) ((x - originX) / cellSize)));
+	}
+
+	private int row(double y) {
+		return Math.min(rows - 1, Math.max(0, (int) ((y - originY) / cellSize)));
+	}
+
+	@Override
+	public int nearestHit(double[] result, double startX, double startY, double dirX, double dirY,
+			double maxDistance) {
+		if (edgeCount == 0) {
+			return -1;
+		}
+		// distance at which the ray enters the grid, 0 if it starts inside.
+		double t = 0, tExit = maxDistance;
+		double gridMaxX = originX + cols * cellSize, gridMaxY = originY + rows * cellSize;
+		if (dirX == 0) {
+			if (startX < originX || startX > gridMaxX)
+				return -1;
+		} else {
+			double t1 = (originX - startX) / dirX, t2 = (gridMaxX - startX) / dirX;
+			t = Math.max(t, Math.min(t1, t2));
+			tExit = Math.min(tExit, Math.max(t1, t2));
+		}
+		if (dirY == 0) {
+			if (startY < originY || startY > gridMaxY)
+				return -1;
+		} else {
+			double t1 = (originY - startY) / dirY, t2 = (gridMaxY - startY) / dirY;
+			t = Math.max(t, Math.min(t1, t2));
+			tExit = Math.min(tExit, Math.max(t1, t2));
+		}
+		if (t > tExit) {
+			return -1;
+		}
+
+		int c = col(startX + dirX * t);
+		int r = row(startY + dirY * t);
+		int stepC = dirX > 0 ? 1 : -1;
+		int stepR = dirY > 0 ? 1 : -1;
+		double deltaX = dirX == 0 ? Double.MAX_VALUE : cellSize / Math.abs(dirX);
+		double deltaY = dirY == 0 ? Double.MAX_VALUE : cellSize / Math.abs(dirY);
+		double nextX = dirX == 0 ? Double.MAX_VALUE
+				: (originX + (dirX > 0 ? c + 1 : c) * cellSize - startX) / dirX;
+		double nextY = dirY == 0 ? Double.MAX_VALUE
+				: (originY + (dirY > 0 ? r + 1 : r) * cellSize - startY) / dirY;
+
+		int closestEdge = -1;
+		double closest = maxDistance;
+		int tests = 0;
+		while (true) {
+			int cell = r * cols + c;
+			tests += cellStart[cell + 1] - cellStart[cell];
+			for (int i = cellStart[cell], end = cellStart[cell + 1]; i < end; i++) {
+				int e = cellEdges[i];
+				double distance = edges.intersect(e, startX, startY, dirX, dirY);
+				if (distance >= 0 && distance < closest) {
+					closest = distance;
+					closestEdge = e;
+				}
+			}
+			double cellExit = Math.min(nextX, nextY);
+			// a hit before the ray leaves this cell can not be beaten by any later cell.
+			if (closest <= cellExit || cellExit >= tExit) {
+				edgeTests.add(tests);
+				return edges.store(result, closestEdge, startX, startY, dirX, dirY);
+			}
+			if (nextX < nextY) {
+				c += stepC;
+				nextX += deltaX;
+			} else {
+				r += stepR;
+				nextY += deltaY;
+			}
+			if (c < 0 || c >= cols || r < 0 || r >= rows) {
+				edgeTests.add(tests);
+				return edges.store(result, closestEdge, startX, startY, dirX, dirY);
+			}
+		}
+	}
+
+	/**
+	 * get number of cells in the grid after last build
+	 * @return number of cells
+	 */
+	public int getCellCount() {
+		return cols * rows;
+	}
+
+	@Override
+	public long sumEdgeTestsThenReset() {
+		return edgeTests.sumThenReset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Grid: %d x %d cells of %.1f", cols, rows, cellSize);
+	}
+}
@@ -0,0 +1,139 @@
+package raycast.engine;
+
+import java.util.Arrays;
+
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * <p>
+ * compute the exact area visible from a light source as one polygon. instead of a fan of evenly spaced rays,
+ * one ray is cast toward every corner of every {@link PolyShape} and toward the corners of the area, plus one
+ * ray slightly before and one slightly after each of them so the rays which slide past a corner find the
+ * shape behind it.
+ * </p>
+ * <p>
+ * the angles are sorted before casting so the hits are already in order around the light source and can be
+ * filled with a single call to fillPolygon. the cost depends on the number of corners, not the ray count.
+ * </p>
+ *
+ * @see <a href="https://ncase.me/sight-and-light/">Sight and Light</a>
+ */
+public class VisibilityPolygon {
+
+	/**
+	 * angle in radians added and removed from the angle of every corner
+	 */
+	public static final double EPSILON = 0.00001;
+
+	private double[] angles = new double[0];
+	private double[] x = new double[0];
+	private double[] y = new double[0];
+	private int size;
+	private int rayCount;
+	private double[] intersectResult = new double[4];
+
+	/**
+	 * compute the visibility polygon of the light source at (startX, startY) inside the area of (0, 0, width,
+	 * height). the given accelerator must already be built from the given edges. every edge starts at a
+	 * corner of its shape so the edge starts are the corners.
+	 * @param accelerator - built {@link RayAccelerator}
+	 * @param edges - edges which block the light
+	 * @param startX - x of light source
+	 * @param startY - y of light source
+	 * @param width - width of the area
+	 * @param height - height of the area
+	 * @return the current instance of this object
+	 */
+	public VisibilityPolygon compute(RayAccelerator accelerator, EdgeBuffer edges, double startX, double startY,
+			double width, double height) {
+		int corners = 4 + edges.size();
+		if (angles.length < corners * 3) {
+			angles = new double[corners * 3];
+			x = new double[corners * 3];
+			y = new double[corners * 3];
+		}
+
+		int count = 0;
+		count = addCorner(count, startX, startY, 0, 0);
+		count = addCorner(count, startX, startY, width, 0);
+		count = addCorner(count, startX, startY, width, height);
+		count = addCorner(count, startX, startY, 0, height);
+		for (int e = 0; e < edges.size(); e++) {
+			count = addCorner(count, startX, startY, edges.x(e), edges.y(e));
+		}
+		Arrays.sort(angles, 0, count);
+		rayCount = count;
+
+		size = 0;
+		for (int i = 0; i < count; i++) {
+			double dirX = Math.cos(angles[i]);
+			double dirY = Math.sin(angles[i]);
+			double exit = exitDistance(startX, startY, dirX, dirY, width, height);
+			double endX, endY;
+			if (accelerator.nearestHit(intersectResult, startX, startY, dirX, dirY, exit) >= 0) {
+				endX = intersectResult[0];
+				endY = intersectResult[1];
+			} else {
+				endX = startX + dirX * exit;
+				endY = startY + dirY * exit;
+			}
+			// rays which end at the same point add nothing to the polygon
+			if (size == 0 || x[size - 1] != endX || y[size - 1] != endY) {
+				x[size] = endX;
+				y[size] = endY;
+				size++;
+			}
+		}
+		return this;
+	}
+
+	private int addCorner(int count, double startX, double startY, double cornerX, double cornerY) {
+		double angle = Math.atan2(cornerY - startY, cornerX - startX);
+		angles[count++] = angle - EPSILON;
+		angles[count++] = angle;
+		angles[count++] = angle + EPSILON;
+		return count;
+	}
+
+	/**
+	 * get the distance at which a ray starting inside the area leaves it.
+	 */
+	private double exitDistance(double startX, double startY, double dirX, double dirY, double width,
+			double height) {
+		double exitX = dirX > 0 ? (width - startX) / dirX : dirX < 0 ? -startX / dirX : Double.MAX_VALUE;
+		double exitY = dirY > 0 ? (height - startY) / dirY : dirY < 0 ? -startY / dirY : Double.MAX_VALUE;
+		return Math.max(0, Math.min(exitX, exitY));
+	}
+
+	/**
+	 * get number of rays cast by the last {@link VisibilityPolygon#compute}
+	 * @return number of rays
+	 */
+	public int rayCount() {
+		return rayCount;
+	}
+
+	/**
+	 * get number of points in the polygon
+	 * @return number of points
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * get the x values of the polygon, only the first {@link VisibilityPolygon#size()} are valid.
+	 * @return array of x values
+	 */
+	public double[] xs() {
+		return x;
+	}
+
+	/**
+	 * get the y values of the polygon, only the first {@link VisibilityPolygon#size()} are valid.
+	 * @return array of y values
+	 */
+	public double[] ys() {
+		return y;
+	}
+}
@@ -3,8 +3,9 @@ package raycast.entity;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import raycast.entity.geometry.DirtyRegion;
 import raycast.entity.property.Sprite;
-import utility.Point;
+import utility.Vector2D;
 
 public class FpsCounter implements Entity {
 
@@ -15,11 +16,11 @@ public class FpsCounter implements Entity {
 	private String fpsDisplay;
 	private int frameCount;
 	private double lastTime;
-	private Point pos;
+	private Vector2D pos;
 	private Sprite sprite;
 
 	public FpsCounter(double x, double y) {
-		pos = new Point();
+		pos = new Vector2D();
 		setPos(x, y);
 		setFont(Font.font(Font.getDefault().getFamily(), FontWeight.BLACK, 24));
 
@@ -38,15 +39,41 @@ public class FpsCounter implements Entity {
 		};
 	}
 
-	public void calculateFPS(long now) {
+	/**
+	 * update the displayed value every half a second from the frames counted by
+	 * {@link FpsCounter#countFrame()}. this is called every pulse, also when nothing is drawn.
+	 * @param now - current time in nanoseconds
+	 * @return true if the displayed text has changed
+	 */
+	public boolean calculateFPS(long now) {
+		boolean changed = false;
 		if ((now - lastTime) > HALF_SECOND) {
-			fpsDisplay = frameCount * 2 + "";
+			String display = frameCount * 2 + "";
+			changed = !display.equals(fpsDisplay);
+			fpsDisplay = display;
 			frameCount = 0;
 			lastTime = now;
 		}
+		return changed;
+	}
+
+	/**
+	 * count a frame which was drawn, pulses skipped because nothing changed are not counted
+	 */
+	public void countFrame() {
 		frameCount++;
 	}
 
+	/**
+	 * mark the area the text is drawn in. the area is estimated from the font size and is large enough for
+	 * four digits.
+	 * @param region - region to mark
+	 */
+	public void markDirty(DirtyRegion region) {
+		double size = fpsFont.getSize();
+		region.mark(pos.x() - 2, pos.y() - size - 2, size * 3, size * 1.5);
+	}
+
 	public FpsCounter setFont(Font font) {
 		fpsFont = font;
 		return this;
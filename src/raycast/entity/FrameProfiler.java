@@ -0,0 +1,306 @@
+package raycast.entity;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.text.Font;
+import raycast.entity.geometry.DirtyRegion;
+import raycast.entity.property.Sprite;
+
+/**
+ * <p>
+ * records how long each phase of a frame takes. the animator calls {@link FrameProfiler#beginFrame()} at the
+ * start of a frame, {@link FrameProfiler#mark(Phase)} at the end of each phase and
+ * {@link FrameProfiler#endFrame()} when done. time between two marks is added to the phase of the later mark.
+ * </p>
+ * <p>
+ * the last {@link FrameProfiler#capacity()} frames are kept in a ring of primitive arrays. only one thread
+ * writes, once a frame is stored its index is published with {@link AtomicLong#lazySet(long)} so any thread
+ * can read the statistics without locking. readers drop frames which were overwritten while reading.
+ * </p>
+ * <p>
+ * times are of the calls to {@link GraphicsContext}, which only records commands. the actual rendering
+ * happens later in the JavaFX render thread and is not part of these numbers.
+ * </p>
+ */
+public class FrameProfiler implements Entity {
+
+	/**
+	 * phases of a frame
+	 */
+	public enum Phase {
+		CLEAR, SHAPES, COMPUTE, DRAW, OVERLAY;
+	}
+
+	private static final int PHASES = Phase.values().length;
+	private static final double MS = 1e6;
+
+	private final int capacity;
+	/**
+	 * time of each phase, frame f is stored at [(f % capacity) * PHASES + phase]
+	 */
+	private final long[] phaseNanos;
+	private final long[] frameNanos;
+	private final long[] rays;
+	private final long[] edgeTests;
+	/**
+	 * number of frames stored so far, also index of next frame
+	 */
+	private final AtomicLong frames = new AtomicLong();
+
+	private long frameStart, lastMark;
+	private long currentRays, currentEdgeTests;
+	private final long[] current = new long[PHASES];
+
+	private String[] display = { "" };
+	private long lastDisplay;
+	private double x, y;
+	private Font font = Font.font("Monospaced", 12);
+	private Sprite sprite;
+
+	/**
+	 * create a profiler which keeps the last given number of frames
+	 * @param capacity - number of frames kept
+	 */
+	public FrameProfiler(int capacity) {
+		this.capacity = capacity;
+		phaseNanos = new long[capacity * PHASES];
+		frameNanos = new long[capacity];
+		rays = new long[capacity];
+		edgeTests = new long[capacity];
+
+		sprite = new Sprite() {
+			@Override
+			public void draw(GraphicsContext gc) {
+				Font temp = gc.getFont();
+				gc.setFont(font);
+				gc.setFill(getFill());
+				for (int i = 0; i < display.length; i++) {
+					gc.fillText(display[i], x, y + i * font.getSize() * 1.2);
+				}
+				gc.setFont(temp);
+			}
+		};
+	}
+
+	/**
+	 * start timing a new frame
+	 */
+	public void beginFrame() {
+		frameStart = lastMark = System.nanoTime();
+		Arrays.fill(current, 0);
+		currentRays = currentEdgeTests = 0;
+	}
+
+	/**
+	 * end the given phase, the time since the last mark or start of frame is added to it
+	 * @param phase - phase which just ended
+	 */
+	public void mark(Phase phase) {
+		long now = System.nanoTime();
+		current[phase.ordinal()] += now - lastMark;
+		lastMark = now;
+	}
+
+	/**
+	 * count work done in this frame
+	 * @param rayCount - number of rays cast
+	 * @param edgeTestCount - number of edges tested for intersection
+	 */
+	public void addWork(long rayCount, long edgeTestCount) {
+		currentRays += rayCount;
+		currentEdgeTests += edgeTestCount;
+	}
+
+	/**
+	 * store the current frame in the ring
+	 */
+	public void endFrame() {
+		long frame = frames.get();
+		int slot = (int) (frame % capacity);
+		System.arraycopy(current, 0, phaseNanos, slot * PHASES, PHASES);
+		frameNanos[slot] = System.nanoTime() - frameStart;
+		rays[slot] = currentRays;
+		edgeTests[slot] = currentEdgeTests;
+		frames.lazySet(frame + 1);
+	}
+
+	/**
+	 * get max number of frames kept
+	 * @return capacity of ring
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * copy the stored frames from oldest to newest. the last row holds the total frame time, rays and
+	 * edge tests, the rows before it the time of each {@link Phase}.
+	 * @return array of [PHASES + 3][frames]
+	 */
+	public long[][] snapshot() {
+		long end = frames.get();
+		long start = Math.max(0, end - capacity);
+		long[][] copy = new long[PHASES + 3][(int) (end - start)];
+		for (long f = start; f < end; f++) {
+			int slot = (int) (f % capacity), i = (int) (f - start);
+			for (int p = 0; p < PHASES; p++) {
+				copy[p][i] = phaseNanos[slot * PHASES + p];
+			}
+			copy[PHASES][i] = frameNanos[slot];
+			copy[PHASES + 1][i] = rays[slot];
+			copy[PHASES + 2][i] = edgeTests[slot];
+		}
+		// the writer may have stored new frames while copying, frames it wrote over are dropped.
+		// the slot of frame "after" may be half written so frames up to after - capacity are invalid.
+		long after = frames.get();
+		int drop = (int) Math.max(0, Math.min(end - start, after - capacity + 1 - start));
+		if (drop > 0) {
+			for (int r = 0; r < copy.length; r++) {
+				copy[r] = Arrays.copyOfRange(copy[r], drop, copy[r].length);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * get the frame time below which the given fraction of frames are
+	 * @param fraction - from 0 to 1, for example 0.95 for p95
+	 * @return frame time in nanoseconds, 0 if there are no frames
+	 */
+	public long percentile(double fraction) {
+		return percentile(snapshot()[PHASES], fraction);
+	}
+
+	private static long percentile(long[] values, double fraction) {
+		if (values.length == 0) {
+			return 0;
+		}
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+	}
+
+	/**
+	 * get the number of rays cast per second of {@link Phase#COMPUTE} time over the stored frames
+	 * @return rays per second
+	 */
+	public double raysPerSecond() {
+		long[][] copy = snapshot();
+		return perSecond(copy[PHASES + 1], copy[Phase.COMPUTE.ordinal()]);
+	}
+
+	/**
+	 * get the number of edges tested per second of {@link Phase#COMPUTE} time over the stored frames
+	 * @return edge tests per second
+	 */
+	public double edgeTestsPerSecond() {
+		long[][] copy = snapshot();
+		return perSecond(copy[PHASES + 2], copy[Phase.COMPUTE.ordinal()]);
+	}
+
+	private static double perSecond(long[] counts, long[] nanos) {
+		long count = 0, time = 0;
+		for (int i = 0; i < counts.length; i++) {
+			count += counts[i];
+			time += nanos[i];
+		}
+		return time == 0 ? 0 : count * 1e9 / time;
+	}
+
+	/**
+	 * get a summary of the stored frames, one line per statistic
+	 * @return lines of summary
+	 */
+	public String[] summary() {
+		long[][] copy = snapshot();
+		long[] total = copy[PHASES];
+		StringBuilder phases = new StringBuilder("avg ms");
+		for (Phase phase : Phase.values()) {
+			phases.append(String.format(Locale.ROOT, " %s %.2f", phase.name().toLowerCase(Locale.ROOT),
+					average(copy[phase.ordinal()]) / MS));
+		}
+		long max = 0;
+		for (long t : total) {
+			max = Math.max(max, t);
+		}
+		return new String[] {
+				String.format(Locale.ROOT, "frame ms p50 %.2f p95 %.2f p99 %.2f max %.2f (%d frames)",
+						percentile(total, 0.5) / MS, percentile(total, 0.95) / MS, percentile(total, 0.99) / MS,
+						max / MS, total.length),
+				phases.toString(),
+				String.format(Locale.ROOT, "rays/s %.3g  edge tests/s %.3g",
+						perSecond(copy[PHASES + 1], copy[Phase.COMPUTE.ordinal()]),
+						perSecond(copy[PHASES + 2], copy[Phase.COMPUTE.ordinal()])) };
+	}
+
+	private static double average(long[] values) {
+		double sum = 0;
+		for (long v : values) {
+			sum += v;
+		}
+		return values.length == 0 ? 0 : sum / values.length;
+	}
+
+	/**
+	 * write the stored frames as CSV with a header line, times are in nanoseconds
+	 * @param out - where to write
+	 * @throws IOException if writing fails
+	 */
+	public void writeCsv(Appendable out) throws IOException {
+		long[][] copy = snapshot();
+		out.append("frame");
+		for (Phase phase : Phase.values()) {
+			out.append(',').append(phase.name().toLowerCase(Locale.ROOT));
+		}
+		out.append(",total,rays,edgeTests\n");
+		for (int i = 0; i < copy[0].length; i++) {
+			out.append(Integer.toString(i));
+			for (long[] column : copy) {
+				out.append(',').append(Long.toString(column[i]));
+			}
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * update the text of the overlay every half a second
+	 * @param now - current time in nanoseconds
+	 * @return true if the text has changed
+	 */
+	public boolean updateDisplay(long now) {
+		if (now - lastDisplay < FpsCounter.HALF_SECOND) {
+			return false;
+		}
+		lastDisplay = now;
+		display = summary();
+		return true;
+	}
+
+	/**
+	 * mark the area the overlay is drawn in
+	 * @param region - region to mark
+	 */
+	public void markDirty(DirtyRegion region) {
+		double line = font.getSize() * 1.2;
+		region.mark(x - 2, y - line, 450, line * (display.length + 1));
+	}
+
+	public FrameProfiler setPos(double x, double y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	public boolean isDrawable() {
+		return true;
+	}
+
+	public Sprite getDrawable() {
+		return sprite;
+	}
+}
@@ -0,0 +1,91 @@
+package raycast.entity.geometry;
+
+/**
+ * <p>
+ * this object keeps track of the area of the canvas which has changed since the last frame. every change
+ * marks a rectangle and the region grows to the smallest rectangle containing all marked rectangles.
+ * animators only redraw inside this region and skip the frame entirely if nothing is marked.
+ * </p>
+ */
+public class DirtyRegion {
+
+	private double minX, minY, maxX, maxY;
+	private boolean dirty;
+
+	/**
+	 * add the given rectangle to the region
+	 * @param x - x coordinate of top left
+	 * @param y - y coordinate of top left
+	 * @param w - width
+	 * @param h - height
+	 */
+	public void mark(double x, double y, double w, double h) {
+		if (!dirty) {
+			minX = x;
+			minY = y;
+			maxX = x + w;
+			maxY = y + h;
+			dirty = true;
+		} else {
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x + w);
+			maxY = Math.max(maxY, y + h);
+		}
+	}
+
+	/**
+	 * add the given bounds to the region grown by the given margin on each side, used for stroke width.
+	 * @param bounds - bounds to add
+	 * @param margin - distance to grow on each side
+	 */
+	public void mark(RectangleBounds bounds, double margin) {
+		mark(bounds.x() - margin, bounds.y() - margin, bounds.w() + 2 * margin, bounds.h() + 2 * margin);
+	}
+
+	/**
+	 * check if anything is marked
+	 * @return true if any rectangle is marked since last {@link DirtyRegion#clear()}
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * check if the region covers the whole given area
+	 * @param width - width of area starting at zero
+	 * @param height - height of area starting at zero
+	 * @return true if nothing outside the region needs to be kept
+	 */
+	public boolean covers(double width, double height) {
+		return dirty && minX <= 0 && minY <= 0 && maxX >= width && maxY >= height;
+	}
+
+	/**
+	 * remove all marked rectangles
+	 */
+	public void clear() {
+		dirty = false;
+	}
+
+	public double x() {
+		return minX;
+	}
+
+	public double y() {
+		return minY;
+	}
+
+	public double w() {
+		return maxX - minX;
+	}
+
+	public double h() {
+		return maxY - minY;
+	}
+
+	@Override
+	public String toString() {
+		return dirty ? String.format("dirty:(%.1f,%.1f) %.1fx%.1f", x(), y(), w(), h()) : "clean";
+	}
+}
@@ -1,9 +1,13 @@
 package raycast.entity.geometry;
 
+import java.nio.DoubleBuffer;
+import java.util.function.DoubleSupplier;
+
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import raycast.entity.Entity;
 import raycast.entity.property.Sprite;
+import utility.RandUtil;
 
 public class PolyShape implements Entity {
 
@@ -33,8 +37,44 @@ public class PolyShape implements Entity {
 		sprite.setStroke(Color.GREEN);
 	}
 
+	/**
+	 * replace the points with a random concave polygon using {@link RandUtil#RAND}, see
+	 * {@link PolyShape#randomize(DoubleSupplier, double, double, double, int, int, boolean)}
+	 * @return the current instance of this object
+	 */
 	public PolyShape randomize(double centerX, double centerY, double size, int minPoints, int maxPoints) {
-		return null;
+		return randomize(RandUtil.RAND::nextDouble, centerX, centerY, size, minPoints, maxPoints, false);
+	}
+
+	/**
+	 * replace the points with a random polygon around the given center. the circle is split in equal parts
+	 * and one point is placed at a random angle in each part, so the polygon never crosses itself. points of
+	 * a convex polygon are all at distance size from the center, otherwise each is at a random distance
+	 * between a third of size and size.
+	 * @param random - source of random doubles between 0.0 (inclusive) and 1.0 (exclusive)
+	 * @param centerX - x of center
+	 * @param centerY - y of center
+	 * @param size - largest distance of a point from the center
+	 * @param minPoints - inclusive, min number of points, at least 3
+	 * @param maxPoints - inclusive, max number of points
+	 * @param convex - true to create a convex polygon
+	 * @return the current instance of this object
+	 */
+	public PolyShape randomize(DoubleSupplier random, double centerX, double centerY, double size, int minPoints,
+			int maxPoints, boolean convex) {
+		if (minPoints < 3 || maxPoints < minPoints)
+			throw new IllegalArgumentException("polygon needs at least 3 points and max not less than min");
+		int count = RandUtil.getInt(random, minPoints, maxPoints + 1);
+		double step = 2 * Math.PI / count;
+		double[] nums = new double[count * 2];
+		for (int i = 0; i < count; i++) {
+			// stay out of the last fifth of each part so two points are never at the same angle
+			double angle = step * (i + RandUtil.getDouble(random, 0, 0.8));
+			double radius = convex ? size : RandUtil.getDouble(random, size / 3, size);
+			nums[i * 2] = centerX + radius * Math.cos(angle);
+			nums[i * 2 + 1] = centerY + radius * Math.sin(angle);
+		}
+		return setPoints(nums);
 	}
 
 	public PolyShape setPoints(double... nums) {
@@ -59,6 +99,70 @@ public class PolyShape implements Entity {
 		return this;
 	}
 
+	/**
+	 * set the points from separate x and y buffers, such as the vertex arrays of a scene file.
+	 * values are read with absolute gets so the positions of the buffers are not changed. a shape without
+	 * points has empty bounds at 0, 0.
+	 * @param xs - x of points
+	 * @param ys - y of points
+	 * @param from - index of first point in buffers
+	 * @param count - number of points
+	 * @return the current instance of this object
+	 */
+	public PolyShape setPoints(DoubleBuffer xs, DoubleBuffer ys, int from, int count) {
+		pointCount = count;
+		points = new double[2][count];
+		minX = maxX = count == 0 ? 0 : xs.get(from);
+		minY = maxY = count == 0 ? 0 : ys.get(from);
+		for (int i = 0; i < count; i++) {
+			points[0][i] = xs.get(from + i);
+			points[1][i] = ys.get(from + i);
+			updateMinMax(points[0][i], points[1][i]);
+		}
+		recBounds = new RectangleBounds(minX, minY, maxX - minX, maxY - minY);
+		return this;
+	}
+
+	/**
+	 * move all points and the bounds of this shape by the given distance
+	 * @param dx - amount to move in x direction
+	 * @param dy - amount to move in y direction
+	 * @return the current instance of this object
+	 */
+	public PolyShape translate(double dx, double dy) {
+		for (int i = 0; i < pointCount; i++) {
+			points[0][i] += dx;
+			points[1][i] += dy;
+		}
+		minX += dx;
+		maxX += dx;
+		minY += dy;
+		maxY += dy;
+		recBounds.translate(dx, dy);
+		return this;
+	}
+
+	/**
+	 * check if a point is inside this shape using the even-odd rule, the bounds are checked first
+	 * @param x - x of point
+	 * @param y - y of point
+	 * @return true if point is inside
+	 */
+	public boolean contains(double x, double y) {
+		if (x < minX || x > maxX || y < minY || y > maxY) {
+			return false;
+		}
+		boolean inside = false;
+		for (int i = 0, j = pointCount - 1; i < pointCount; j = i++) {
+			double yi = points[1][i], yj = points[1][j];
+			if ((yi > y) != (yj > y)
+					&& x < points[0][j] + (y - yj) / (yi - yj) * (points[0][i] - points[0][j])) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
 	private void updateMinMax(double x, double y) {
 		if (x < minX)
 			minX = x;
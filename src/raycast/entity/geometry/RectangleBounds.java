@@ -3,9 +3,11 @@ package raycast.entity.geometry;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import utility.Point;
+import utility.Vector2D;
 
 /**
  * this object represent the boundaries of any shape in a shape of a rectangle.
+ * it is stored in {@link Vector2D}s so it can be checked every frame without touching any property.
  * 
  * @author Shahriar (Shawn) Emami
  * @version Jan 12, 2019
@@ -15,14 +17,14 @@ public class RectangleBounds{
 	/**
 	 * the top left corner and dimension of this rectangle
 	 */
-	private Point start, dimension;
+	private Vector2D start, dimension;
 
 	/**
 	 * create a new Object with all values at zero
 	 */
 	public RectangleBounds(){
-		start = new Point();
-		dimension = new Point();
+		start = new Vector2D();
+		dimension = new Vector2D();
 	}
 
 	/**
@@ -49,9 +51,9 @@ public class RectangleBounds{
 
 	/**
 	 * get the point with x and y value
-	 * @return x and y as a point object
+	 * @return x and y as a vector object
 	 */
-	public Point startPos(){
+	public Vector2D startPos(){
 		return start;
 	}
 
@@ -75,11 +77,20 @@ public class RectangleBounds{
 		return move( p.x(), p.y());
 	}
 
+	/**
+	 * move the top left corner to given vector
+	 * @param v - new top left corner
+	 * @return the current instance of this object
+	 */
+	public RectangleBounds move( Vector2D v){
+		return move( v.x(), v.y());
+	}
+
 	/**
 	 * get the point with width and height value
-	 * @return width and height as a point object
+	 * @return width and height as a vector object
 	 */
-	public Point dimension(){
+	public Vector2D dimension(){
 		return dimension;
 	}
 
@@ -213,6 +224,15 @@ public class RectangleBounds{
 		return contains( p.x(), p.y());
 	}
 
+	/**
+	 * check if given vector is with in this {@link RectangleBounds}
+	 * @param v - given vector with x and y
+	 * @return true if in else false
+	 */
+	public boolean contains( Vector2D v){
+		return contains( v.x(), v.y());
+	}
+
 	/**
 	 * check if given (x,y) is with in this {@link RectangleBounds}
 	 * @param x - x coordinate
@@ -0,0 +1,302 @@
+package raycast.scene;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import raycast.engine.EdgeBuffer;
+import raycast.entity.geometry.PolyShape;
+import raycast.entity.property.Sprite;
+
+/**
+ * <p>
+ * a compact binary scene which is read through a {@link MappedByteBuffer}. nothing is parsed or copied when a
+ * file is opened, the vertex arrays are {@link DoubleBuffer} views of the mapped file. edges can be filled
+ * straight from them with {@link SceneFile#fill(EdgeBuffer)}, {@link SceneFile#toShapes()} is only needed to
+ * draw the scene. shapes can not share the mapped memory, {@link javafx.scene.canvas.GraphicsContext} only
+ * draws polygons from arrays which start at the first point, so each shape copies its points.
+ * </p>
+ * <p>
+ * the header and the shape table are checked when a file is opened, a corrupt file throws an
+ * {@link IOException} there instead of failing later when the shapes or edges are read.
+ * </p>
+ * <p>
+ * all values are little endian and every section starts at a multiple of 8 bytes.
+ * </p>
+ * <p>
+ * only {@link Color} fills and strokes are stored. a null paint or any other {@link Paint}, such as a
+ * gradient, is written as 0 and read back as transparent black.
+ * </p>
+ *
+ * <pre>
+ * header   int magic "RCSN", int version, int styleCount, int shapeCount, int vertexCount, int reserved
+ * styles   styleCount * (int fill RGBA, int stroke RGBA, double width)
+ * shapes   shapeCount + 1 ints, first vertex of each shape, last one is vertexCount. padded to 8 bytes
+ * style    shapeCount ints, style index of each shape. padded to 8 bytes
+ * x        vertexCount doubles
+ * y        vertexCount doubles
+ * </pre>
+ */
+public class SceneFile {
+
+	public static final int MAGIC = 0x4E534352; // "RCSN" read as little endian int
+	public static final int VERSION = 1;
+	public static final String EXTENSION = ".scene";
+
+	private static final int HEADER_SIZE = 24;
+	private static final int STYLE_SIZE = 16;
+
+	private final ByteBuffer buffer;
+	private final int styleCount, shapeCount, vertexCount;
+	private final int stylesOffset;
+	private final IntBuffer starts, styles;
+	private final DoubleBuffer xs, ys;
+
+	private SceneFile(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("not a scene file");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("unsupported scene version " + buffer.getInt(4));
+		}
+		styleCount = buffer.getInt(8);
+		shapeCount = buffer.getInt(12);
+		vertexCount = buffer.getInt(16);
+		if (styleCount < 0 || shapeCount < 0 || vertexCount < 0) {
+			throw new IOException("scene file has a negative count");
+		}
+		// offsets are computed in long so large counts in a corrupt header can not overflow
+		stylesOffset = HEADER_SIZE;
+		long startsOffset = stylesOffset + (long) styleCount * STYLE_SIZE;
+		long stylesIndexOffset = startsOffset + align((shapeCount + 1L) * 4);
+		long xOffset = stylesIndexOffset + align(shapeCount * 4L);
+		long yOffset = xOffset + vertexCount * 8L;
+		if (yOffset + vertexCount * 8L > buffer.capacity()) {
+			throw new IOException("scene file is truncated");
+		}
+		// every section is inside the buffer, so all offsets and lengths fit in an int from here on
+		starts = slice((int) startsOffset, (shapeCount + 1) * 4).asIntBuffer();
+		styles = slice((int) stylesIndexOffset, shapeCount * 4).asIntBuffer();
+		xs = slice((int) xOffset, vertexCount * 8).asDoubleBuffer();
+		ys = slice((int) yOffset, vertexCount * 8).asDoubleBuffer();
+		if (shapeCount > 0 && (starts.get(0) != 0 || starts.get(shapeCount) != vertexCount)) {
+			throw new IOException("scene file shape table does not match vertex count");
+		}
+		for (int s = 0, previous = 0; s <= shapeCount; s++) {
+			int start = starts.get(s);
+			if (start < previous || start > vertexCount) {
+				throw new IOException("scene file shape table is out of order at shape " + s);
+			}
+			previous = start;
+		}
+	}
+
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.limit(offset + length);
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * map the given file into memory. the mapping stays valid until this object is garbage collected,
+	 * closing the file is not needed.
+	 * @param file - path of scene file
+	 * @return mapped scene
+	 * @throws IOException if file can not be read or is not a scene file
+	 */
+	public static SceneFile map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new SceneFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	public int shapeCount() {
+		return shapeCount;
+	}
+
+	public int vertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * get the index of first vertex of given shape
+	 * @param s - shape index
+	 * @return index in {@link SceneFile#xs()} and {@link SceneFile#ys()}
+	 */
+	public int shapeStart(int s) {
+		return starts.get(s);
+	}
+
+	/**
+	 * get the index after the last vertex of given shape
+	 * @param s - shape index
+	 * @return index in {@link SceneFile#xs()} and {@link SceneFile#ys()}
+	 */
+	public int shapeEnd(int s) {
+		return starts.get(s + 1);
+	}
+
+	/**
+	 * get a view of the x of all vertices, every call returns a new view so it can be used by one thread
+	 * @return x values backed by the mapped file
+	 */
+	public DoubleBuffer xs() {
+		return xs.duplicate();
+	}
+
+	/**
+	 * get a view of the y of all vertices, every call returns a new view so it can be used by one thread
+	 * @return y values backed by the mapped file
+	 */
+	public DoubleBuffer ys() {
+		return ys.duplicate();
+	}
+
+	/**
+	 * replace the edges of given buffer with the edges of this scene
+	 * @param edges - buffer to fill
+	 * @return the given buffer
+	 */
+	public EdgeBuffer fill(EdgeBuffer edges) {
+		int[] shapeStarts = new int[shapeCount + 1];
+		starts.duplicate().get(shapeStarts);
+		return edges.build(xs, ys, shapeStarts, shapeCount);
+	}
+
+	/**
+	 * create a {@link PolyShape} with its style for every shape in the file
+	 * @return list of shapes
+	 */
+	public List<PolyShape> toShapes() {
+		List<PolyShape> shapes = new ArrayList<>(shapeCount);
+		for (int s = 0; s < shapeCount; s++) {
+			PolyShape shape = new PolyShape().setPoints(xs, ys, shapeStart(s), shapeEnd(s) - shapeStart(s));
+			int style = styles.get(s);
+			if (style >= 0 && style < styleCount) {
+				int offset = stylesOffset + style * STYLE_SIZE;
+				shape.getDrawable().setFill(toColor(buffer.getInt(offset)))
+						.setStroke(toColor(buffer.getInt(offset + 4))).setWidth(buffer.getDouble(offset + 8));
+			}
+			shapes.add(shape);
+		}
+		return shapes;
+	}
+
+	/**
+	 * write the given shapes as a scene file. shapes with the same fill, stroke and width share one style.
+	 * colors which are not a {@link Color} are stored as transparent.
+	 * @param file - path of file to write
+	 * @param shapes - shapes to write
+	 * @throws IOException if file can not be written
+	 */
+	public static void write(Path file, List<PolyShape> shapes) throws IOException {
+		Map<String, Integer> styleIndex = new LinkedHashMap<>();
+		List<Sprite> styleSprites = new ArrayList<>();
+		int[] shapeStyles = new int[shapes.size()];
+		int vertices = 0;
+		for (int s = 0; s < shapes.size(); s++) {
+			Sprite sprite = shapes.get(s).getDrawable();
+			String key = toRGBA(sprite.getFill()) + ":" + toRGBA(sprite.getStroke()) + ":" + sprite.getWidth();
+			Integer index = styleIndex.get(key);
+			if (index == null) {
+				index = styleSprites.size();
+				styleIndex.put(key, index);
+				styleSprites.add(sprite);
+			}
+			shapeStyles[s] = index;
+			vertices += shapes.get(s).pointCount();
+		}
+
+		long size = HEADER_SIZE + (long) styleSprites.size() * STYLE_SIZE + align((shapes.size() + 1) * 4)
+				+ align(shapes.size() * 4) + vertices * 16L;
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("scene is too large for one file");
+		}
+		ByteBuffer out = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION).putInt(styleSprites.size()).putInt(shapes.size()).putInt(vertices).putInt(0);
+		for (Sprite sprite : styleSprites) {
+			out.putInt(toRGBA(sprite.getFill())).putInt(toRGBA(sprite.getStroke())).putDouble(sprite.getWidth());
+		}
+		int start = 0;
+		for (PolyShape shape : shapes) {
+			out.putInt(start);
+			start += shape.pointCount();
+		}
+		out.putInt(start);
+		out.position((int) align(out.position()));
+		for (int style : shapeStyles) {
+			out.putInt(style);
+		}
+		out.position((int) align(out.position()));
+		for (PolyShape shape : shapes) {
+			for (int i = 0; i < shape.pointCount(); i++) {
+				out.putDouble(shape.pX(i));
+			}
+		}
+		for (PolyShape shape : shapes) {
+			for (int i = 0; i < shape.pointCount(); i++) {
+				out.putDouble(shape.pY(i));
+			}
+		}
+		out.flip();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+		}
+	}
+
+	/**
+	 * pack a color in one int, see the format above for paints which are not a {@link Color}
+	 * @return red in the highest byte, opacity in the lowest, 0 if paint is not a {@link Color}
+	 */
+	private static int toRGBA(Paint paint) {
+		if (!(paint instanceof Color)) {
+			return 0;
+		}
+		Color color = (Color) paint;
+		return (int) Math.round(color.getRed() * 255) << 24 | (int) Math.round(color.getGreen() * 255) << 16
+				| (int) Math.round(color.getBlue() * 255) << 8 | (int) Math.round(color.getOpacity() * 255);
+	}
+
+	private static Color toColor(int rgba) {
+		return Color.rgb(rgba >>> 24, rgba >>> 16 & 0xFF, rgba >>> 8 & 0xFF, (rgba & 0xFF) / 255.0);
+	}
+
+	/**
+	 * convert a text or JSON scene to a scene file
+	 *
+	 * <pre>
+	 * java raycast.scene.SceneFile input.txt|input.json output.scene
+	 * </pre>
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			throw new IllegalArgumentException("usage: SceneFile input.txt|input.json output" + EXTENSION);
+		}
+		long start = System.nanoTime();
+		List<PolyShape> shapes = SceneReader.read(Paths.get(args[0]));
+		write(Paths.get(args[1]), shapes);
+		System.err.printf("wrote %d shapes in %.1f ms%n", shapes.size(), (System.nanoTime() - start) / 1e6);
+	}
+}
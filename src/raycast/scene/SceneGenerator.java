@@ -0,0 +1,233 @@
+package raycast.scene;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.DoubleSupplier;
+import java.util.stream.IntStream;
+
+import javafx.scene.paint.Color;
+import raycast.entity.geometry.PolyShape;
+import utility.Point;
+import utility.RandUtil;
+
+/**
+ * <p>
+ * generate large scenes for benchmarks and stress tests. the same layout, count, size and seed always
+ * create the same shapes.
+ * </p>
+ * <p>
+ * shapes are generated in chunks of {@link SceneGenerator#CHUNK_SIZE} on the common
+ * {@link java.util.concurrent.ForkJoinPool}. every chunk has its own {@link SplittableRandom} split from the
+ * seed in order of the chunks, so the result does not depend on the number of threads or the order the
+ * chunks run in. {@link RandUtil#RAND} is not used as it is shared by all threads.
+ * </p>
+ */
+public final class SceneGenerator {
+
+	/**
+	 * how the shapes are placed in the area
+	 */
+	public enum Layout {
+		/**
+		 * convex and concave polygons of similar size spread evenly over the area
+		 */
+		POLYGONS("Random polygons"),
+		/**
+		 * one box in each cell of a grid
+		 */
+		BOXES("Box grid"),
+		/**
+		 * walls of a maze, long corridors where most of the scene is hidden from any light
+		 */
+		MAZE("Maze"),
+		/**
+		 * small polygons packed around a few centers with empty space in between
+		 */
+		CLUSTERS("Clusters");
+
+		private final String name;
+
+		Layout(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * number of shapes generated by one task with its own random generator, also the number of shapes in
+	 * one cluster of {@link Layout#CLUSTERS}
+	 */
+	public static final int CHUNK_SIZE = 256;
+
+	private SceneGenerator() {
+	}
+
+	/**
+	 * generate a scene
+	 * @param layout - how shapes are placed
+	 * @param count - number of shapes, for {@link Layout#MAZE} the number of walls is close to it
+	 * @param width - width of the area
+	 * @param height - height of the area
+	 * @param seed - seed of the random generators
+	 * @return list of shapes
+	 */
+	public static List<PolyShape> generate(Layout layout, int count, double width, double height, long seed) {
+		if (count < 1 || width <= 0 || height <= 0)
+			throw new IllegalArgumentException("count, width and height must be positive");
+		SplittableRandom root = new SplittableRandom(seed);
+		if (layout == Layout.MAZE) {
+			return maze(root, count, width, height);
+		}
+		PolyShape[] shapes = new PolyShape[count];
+		int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		SplittableRandom[] randoms = new SplittableRandom[chunks];
+		for (int c = 0; c < chunks; c++) {
+			randoms[c] = root.split();
+		}
+		IntStream.range(0, chunks).parallel().forEach(c -> {
+			DoubleSupplier random = randoms[c]::nextDouble;
+			int from = c * CHUNK_SIZE, to = Math.min(count, from + CHUNK_SIZE);
+			switch (layout) {
+				case POLYGONS:
+					polygons(random, shapes, from, to, width, height);
+					break;
+				case BOXES:
+					boxes(random, shapes, from, to, width, height);
+					break;
+				case CLUSTERS:
+					cluster(random, shapes, from, to, chunks, width, height);
+					break;
+				default:
+					throw new IllegalArgumentException("unknown layout: " + layout);
+			}
+		});
+		return new ArrayList<>(Arrays.asList(shapes));
+	}
+
+	private static void polygons(DoubleSupplier random, PolyShape[] shapes, int from, int to, double width,
+			double height) {
+		// polygons together cover about a third of the area
+		double maxSize = Math.max(2, Math.sqrt(width * height / shapes.length) * 0.4);
+		for (int i = from; i < to; i++) {
+			Point center = Point.random(random, width, height, maxSize, maxSize);
+			double size = RandUtil.getDouble(random, maxSize / 2, maxSize);
+			boolean convex = random.getAsDouble() < 0.5;
+			shapes[i] = style(random, new PolyShape().randomize(random, center.x(), center.y(), size, 3, 8, convex));
+		}
+	}
+
+	private static void boxes(DoubleSupplier random, PolyShape[] shapes, int from, int to, double width,
+			double height) {
+		int columns = Math.max(1, (int) Math.round(Math.sqrt(shapes.length * width / height)));
+		int rows = (shapes.length + columns - 1) / columns;
+		double cellWidth = width / columns, cellHeight = height / rows;
+		for (int i = from; i < to; i++) {
+			double w = cellWidth * RandUtil.getDouble(random, 0.3, 0.7);
+			double h = cellHeight * RandUtil.getDouble(random, 0.3, 0.7);
+			double x = (i % columns) * cellWidth + RandUtil.getDouble(random, 0, cellWidth - w);
+			double y = (i / columns) * cellHeight + RandUtil.getDouble(random, 0, cellHeight - h);
+			shapes[i] = style(random, new PolyShape().setPoints(x, y, x + w, y, x + w, y + h, x, y + h));
+		}
+	}
+
+	/**
+	 * fill one chunk with a cluster of small polygons around a random center
+	 */
+	private static void cluster(DoubleSupplier random, PolyShape[] shapes, int from, int to, int clusters,
+			double width, double height) {
+		double radius = Math.min(Math.min(width, height) / 2, Math.sqrt(width * height / clusters) * 0.4);
+		double maxSize = Math.max(2, radius / Math.sqrt(CHUNK_SIZE) * 0.6);
+		Point center = Point.random(random, width, height, radius, radius);
+		for (int i = from; i < to; i++) {
+			// square root of a uniform distance spreads the polygons evenly over the disk of the cluster
+			double distance = radius * Math.sqrt(random.getAsDouble());
+			double angle = RandUtil.getDouble(random, 0, 2 * Math.PI);
+			double size = RandUtil.getDouble(random, maxSize / 2, maxSize);
+			shapes[i] = style(random, new PolyShape().randomize(random, center.x() + distance * Math.cos(angle),
+					center.y() + distance * Math.sin(angle), size, 3, 6, false));
+		}
+	}
+
+	/**
+	 * carve a maze out of a grid with a depth first search and create a thin box for every wall left.
+	 * the search is sequential, it only touches one int per cell and is fast next to creating the shapes.
+	 */
+	private static List<PolyShape> maze(SplittableRandom random, int count, double width, double height) {
+		// every cell keeps about one of its right and bottom walls
+		int cells = Math.max(1, count);
+		int columns = Math.max(1, (int) Math.round(Math.sqrt(cells * width / height)));
+		int rows = Math.max(1, cells / columns);
+		double cellWidth = width / columns, cellHeight = height / rows;
+		double thickness = Math.max(1, Math.min(cellWidth, cellHeight) * 0.15);
+
+		// bit 0 is the right wall of a cell and bit 1 the bottom wall, both are set until carved away
+		int[] walls = new int[columns * rows];
+		Arrays.fill(walls, 3);
+		boolean[] visited = new boolean[walls.length];
+		int[] stack = new int[walls.length];
+		int[] next = new int[4];
+		int top = 0;
+		stack[top++] = 0;
+		visited[0] = true;
+		while (top > 0) {
+			int cell = stack[top - 1];
+			int column = cell % columns, row = cell / columns;
+			int options = 0;
+			if (column > 0 && !visited[cell - 1])
+				next[options++] = cell - 1;
+			if (column + 1 < columns && !visited[cell + 1])
+				next[options++] = cell + 1;
+			if (row > 0 && !visited[cell - columns])
+				next[options++] = cell - columns;
+			if (row + 1 < rows && !visited[cell + columns])
+				next[options++] = cell + columns;
+			if (options == 0) {
+				top--;
+				continue;
+			}
+			int chosen = next[random.nextInt(options)];
+			if (chosen == cell + 1)
+				walls[cell] &= ~1;
+			else if (chosen == cell - 1)
+				walls[chosen] &= ~1;
+			else if (chosen == cell + columns)
+				walls[cell] &= ~2;
+			else
+				walls[chosen] &= ~2;
+			visited[chosen] = true;
+			stack[top++] = chosen;
+		}
+
+		List<PolyShape> shapes = new ArrayList<>(walls.length + 2);
+		double half = thickness / 2;
+		// top and left border, the right and bottom border are the walls of the last column and row
+		shapes.add(wall(0, 0, width, thickness));
+		shapes.add(wall(0, 0, thickness, height));
+		for (int cell = 0; cell < walls.length; cell++) {
+			double x = (cell % columns) * cellWidth, y = (cell / columns) * cellHeight;
+			if ((walls[cell] & 1) != 0)
+				shapes.add(wall(x + cellWidth - half, y - half, thickness, cellHeight + thickness));
+			if ((walls[cell] & 2) != 0)
+				shapes.add(wall(x - half, y + cellHeight - half, cellWidth + thickness, thickness));
+		}
+		return shapes;
+	}
+
+	private static PolyShape wall(double x, double y, double w, double h) {
+		PolyShape shape = new PolyShape().setPoints(x, y, x + w, y, x + w, y + h, x, y + h);
+		shape.getDrawable().setFill(Color.DARKSLATEGRAY).setStroke(Color.BLACK).setWidth(1);
+		return shape;
+	}
+
+	private static PolyShape style(DoubleSupplier random, PolyShape shape) {
+		shape.getDrawable().setFill(Color.hsb(RandUtil.getDouble(random, 0, 360), 0.45, 0.9)).setStroke(Color.BLACK)
+				.setWidth(1);
+		return shape;
+	}
+}
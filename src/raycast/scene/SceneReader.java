@@ -0,0 +1,329 @@
+package raycast.scene;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javafx.scene.paint.Color;
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * <p>
+ * read shapes from a scene file. the format is chosen by the extension of the file:
+ * </p>
+ * <ul>
+ * <li>{@link SceneFile#EXTENSION} - binary scene, see {@link SceneFile}</li>
+ * <li>.json - an object with an array of shapes, or only the array:
+ * <code>{"shapes": [{"points": [x1, y1, x2, y2, ...], "fill": "teal", "stroke": "#000000", "width": 5}]}</code>.
+ * points are required, the rest is optional. colors are any value accepted by {@link Color#web(String)}</li>
+ * <li>anything else - text, one polygon per line as x1 y1 x2 y2 ... separated by spaces or commas.
+ * empty lines and lines starting with # are ignored</li>
+ * </ul>
+ */
+public final class SceneReader {
+
+	private SceneReader() {
+	}
+
+	/**
+	 * read all shapes of given file
+	 * @param file - path of file
+	 * @return list of shapes
+	 * @throws IOException if file can not be read or is not a valid scene
+	 */
+	public static List<PolyShape> read(Path file) throws IOException {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(SceneFile.EXTENSION)) {
+			return SceneFile.map(file).toShapes();
+		} else if (name.endsWith(".json")) {
+			return readJson(file);
+		}
+		return readText(file);
+	}
+
+	/**
+	 * read shapes from a text file, one polygon per line as x1 y1 x2 y2 ...
+	 * @param file - path of file
+	 * @return list of shapes
+	 * @throws IOException if file can not be read or a line is not a polygon
+	 */
+	public static List<PolyShape> readText(Path file) throws IOException {
+		List<PolyShape> shapes = new ArrayList<>();
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			double[] numbers = parseNumbers(line);
+			if (numbers.length == 0) {
+				continue;
+			}
+			if (numbers.length < 6 || numbers.length % 2 != 0) {
+				throw new IOException(file + ":" + lineNumber + ": polygon needs at least 3 points of x and y");
+			}
+			shapes.add(new PolyShape().setPoints(numbers));
+		}
+		return shapes;
+	}
+
+	/**
+	 * parse a line of numbers separated by spaces or commas
+	 * @param line - line of text
+	 * @return numbers in the line, empty if line is empty or starts with #
+	 * @throws IOException if a value is not a number
+	 */
+	public static double[] parseNumbers(String line) throws IOException {
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#")) {
+			return new double[0];
+		}
+		String[] tokens = line.split("[\\s,]+");
+		double[] numbers = new double[tokens.length];
+		try {
+			for (int i = 0; i < tokens.length; i++) {
+				numbers[i] = Double.parseDouble(tokens[i]);
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("not a number in line: " + line, e);
+		}
+		return numbers;
+	}
+
+	/**
+	 * read shapes from a JSON file
+	 * @param file - path of file
+	 * @return list of shapes
+	 * @throws IOException if file can not be read or is not valid
+	 */
+	public static List<PolyShape> readJson(Path file) throws IOException {
+		Object root = new JsonParser(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).parse();
+		if (root instanceof Map) {
+			root = ((Map<?, ?>) root).get("shapes");
+		}
+		if (!(root instanceof List)) {
+			throw new IOException(file + ": expected an array of shapes");
+		}
+		List<PolyShape> shapes = new ArrayList<>();
+		for (Object item : (List<?>) root) {
+			if (!(item instanceof Map)) {
+				throw new IOException(file + ": shape " + shapes.size() + " is not an object");
+			}
+			Map<?, ?> json = (Map<?, ?>) item;
+			Object points = json.get("points");
+			if (!(points instanceof List) || ((List<?>) points).size() < 6 || ((List<?>) points).size() % 2 != 0) {
+				throw new IOException(file + ": shape " + shapes.size() + " needs at least 3 points of x and y");
+			}
+			List<?> list = (List<?>) points;
+			double[] numbers = new double[list.size()];
+			for (int i = 0; i < numbers.length; i++) {
+				if (!(list.get(i) instanceof Double)) {
+					throw new IOException(file + ": shape " + shapes.size() + " has a point which is not a number");
+				}
+				numbers[i] = (Double) list.get(i);
+			}
+			PolyShape shape = new PolyShape().setPoints(numbers);
+			try {
+				if (json.get("fill") instanceof String)
+					shape.getDrawable().setFill(Color.web((String) json.get("fill")));
+				if (json.get("stroke") instanceof String)
+					shape.getDrawable().setStroke(Color.web((String) json.get("stroke")));
+			} catch (IllegalArgumentException e) {
+				throw new IOException(file + ": shape " + shapes.size() + " has an invalid color", e);
+			}
+			if (json.get("width") instanceof Double)
+				shape.getDrawable().setWidth((Double) json.get("width"));
+			shapes.add(shape);
+		}
+		return shapes;
+	}
+
+	/**
+	 * the smallest JSON parser needed for scenes. objects become {@link Map}, arrays {@link List}, numbers
+	 * {@link Double}, strings {@link String} and true, false and null their java values.
+	 */
+	private static class JsonParser {
+
+		private final String text;
+		private int index;
+
+		JsonParser(String text) {
+			this.text = text;
+		}
+
+		Object parse() throws IOException {
+			Object value = value();
+			skipSpace();
+			if (index < text.length()) {
+				throw error("unexpected text after value");
+			}
+			return value;
+		}
+
+		private Object value() throws IOException {
+			skipSpace();
+			if (index >= text.length()) {
+				throw error("unexpected end");
+			}
+			char c = text.charAt(index);
+			switch (c) {
+				case '{':
+					return object();
+				case '[':
+					return array();
+				case '"':
+					return string();
+				case 't':
+					return literal("true", Boolean.TRUE);
+				case 'f':
+					return literal("false", Boolean.FALSE);
+				case 'n':
+					return literal("null", null);
+				default:
+					return number();
+			}
+		}
+
+		private Map<String, Object> object() throws IOException {
+			Map<String, Object> map = new LinkedHashMap<>();
+			index++;
+			skipSpace();
+			if (peek() == '}') {
+				index++;
+				return map;
+			}
+			while (true) {
+				skipSpace();
+				if (peek() != '"') {
+					throw error("expected name");
+				}
+				String name = string();
+				skipSpace();
+				expect(':');
+				map.put(name, value());
+				skipSpace();
+				if (peek() == ',') {
+					index++;
+				} else {
+					expect('}');
+					return map;
+				}
+			}
+		}
+
+		private List<Object> array() throws IOException {
+			List<Object> list = new ArrayList<>();
+			index++;
+			skipSpace();
+			if (peek() == ']') {
+				index++;
+				return list;
+			}
+			while (true) {
+				list.add(value());
+				skipSpace();
+				if (peek() == ',') {
+					index++;
+				} else {
+					expect(']');
+					return list;
+				}
+			}
+		}
+
+		private String string() throws IOException {
+			StringBuilder builder = new StringBuilder();
+			index++;
+			while (index < text.length()) {
+				char c = text.charAt(index++);
+				if (c == '"') {
+					return builder.toString();
+				}
+				if (c != '\\') {
+					builder.append(c);
+					continue;
+				}
+				if (index >= text.length()) {
+					break;
+				}
+				char escaped = text.charAt(index++);
+				switch (escaped) {
+					case 'n':
+						builder.append('\n');
+						break;
+					case 't':
+						builder.append('\t');
+						break;
+					case 'r':
+						builder.append('\r');
+						break;
+					case 'b':
+						builder.append('\b');
+						break;
+					case 'f':
+						builder.append('\f');
+						break;
+					case 'u':
+						if (index + 4 > text.length()) {
+							throw error("bad unicode escape");
+						}
+						try {
+							builder.append((char) Integer.parseInt(text.substring(index, index + 4), 16));
+						} catch (NumberFormatException e) {
+							throw error("bad unicode escape");
+						}
+						index += 4;
+						break;
+					default:
+						builder.append(escaped);
+				}
+			}
+			throw error("unterminated string");
+		}
+
+		private Double number() throws IOException {
+			int start = index;
+			while (index < text.length() && "+-0123456789.eE".indexOf(text.charAt(index)) >= 0) {
+				index++;
+			}
+			try {
+				return Double.valueOf(text.substring(start, index));
+			} catch (NumberFormatException e) {
+				index = start;
+				throw error("expected value");
+			}
+		}
+
+		private Object literal(String word, Object value) throws IOException {
+			if (!text.startsWith(word, index)) {
+				throw error("expected " + word);
+			}
+			index += word.length();
+			return value;
+		}
+
+		private void skipSpace() {
+			while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+				index++;
+			}
+		}
+
+		private char peek() {
+			return index < text.length() ? text.charAt(index) : 0;
+		}
+
+		private void expect(char c) throws IOException {
+			if (peek() != c) {
+				throw error("expected '" + c + "'");
+			}
+			index++;
+		}
+
+		private IOException error(String message) {
+			return new IOException("invalid JSON at character " + index + ": " + message);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package utility;
 
 import java.util.Objects;
+import java.util.function.DoubleSupplier;
 
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
@@ -275,8 +276,21 @@ public class Point{
 	 * @return a new point between the given height and width
 	 */
 	public static Point random( double w, double h, double marginX, double marginY){
+		return random( RandUtil.RAND::nextDouble, w, h, marginX, marginY);
+	}
+
+	/**
+	 * get a random point in the area of given height and with minus the given margin
+	 * @param random - source of random doubles between 0.0 (inclusive) and 1.0 (exclusive)
+	 * @param w - width of the rectangle which in point will spawn
+	 * @param h - height of the rectangle which in point will spawn
+	 * @param marginX - the margin on the width of rectangle which point will not spawn
+	 * @param marginY - the margin on the height of rectangle which point will not spawn
+	 * @return a new point between the given height and width
+	 */
+	public static Point random( DoubleSupplier random, double w, double h, double marginX, double marginY){
 		return new Point()
-				.x( RandUtil.getDouble( marginX, w - marginX))
-				.y( RandUtil.getDouble( marginY, h - marginY));
+				.x( RandUtil.getDouble( random, marginX, w - marginX))
+				.y( RandUtil.getDouble( random, marginY, h - marginY));
 	}
 }
@@ -1,6 +1,7 @@
 package utility;
 
 import java.util.Random;
+import java.util.function.DoubleSupplier;
 
 /**
  * a utility class for using {@link Random}. aside from extra functionality
@@ -89,4 +90,27 @@ public final class RandUtil{
 	public static double getDouble( double max){
 		return RAND.nextDouble() * max;
 	}
+
+	/**
+	 * get a random integer between min and max from the given source instead of {@link RandUtil#RAND}.
+	 * @param random - source of random doubles between 0.0 (inclusive) and 1.0 (exclusive)
+	 * @param min - inclusive, min random integer
+	 * @param max - exclusive, max random integer
+	 * @return random integer value
+	 */
+	public static int getInt( DoubleSupplier random, int min, int max){
+		return Math.min( max - 1, min + (int) (random.getAsDouble() * (max - min)));
+	}
+
+	/**
+	 * get a random double between min and max from the given source instead of {@link RandUtil#RAND}.
+	 * a {@link java.util.SplittableRandom} per thread can be passed to generate in parallel.
+	 * @param random - source of random doubles between 0.0 (inclusive) and 1.0 (exclusive)
+	 * @param min - inclusive, min random double
+	 * @param max - exclusive, max random double
+	 * @return random double value
+	 */
+	public static double getDouble( DoubleSupplier random, double min, double max){
+		return random.getAsDouble() * (max - min) + min;
+	}
 }
@@ -0,0 +1,154 @@
+package utility;
+
+/**
+ * <p>
+ * this class represent a point or vector of x and y stored as two primitive doubles. unlike {@link Point} it
+ * has no properties or listeners so reading and writing it is as cheap as a field access. use it in code which
+ * runs every frame and keep {@link Point} for values which need to be bound to the UI.
+ * </p>
+ */
+public class Vector2D {
+
+	private double x, y;
+
+	/**
+	 * create a new vector at (0,0)
+	 */
+	public Vector2D() {
+	}
+
+	/**
+	 * create a new vector with given x and y
+	 * @param x - value of x
+	 * @param y - value of y
+	 */
+	public Vector2D(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * create a new vector with the current values of given point
+	 * @param p - point to copy
+	 */
+	public Vector2D(Point p) {
+		this(p.x(), p.y());
+	}
+
+	/**
+	 * translate the vector by the given distance
+	 * @param dx - amount to move in x direction
+	 * @param dy - amount to move in y direction
+	 */
+	public void translate(double dx, double dy) {
+		x += dx;
+		y += dy;
+	}
+
+	/**
+	 * set the value of x and y
+	 * @param x - new value of x
+	 * @param y - new value of y
+	 */
+	public void set(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * get value of x
+	 * @return value of x
+	 */
+	public double x() {
+		return x;
+	}
+
+	/**
+	 * get value of y
+	 * @return value of y
+	 */
+	public double y() {
+		return y;
+	}
+
+	/**
+	 * set value of x
+	 * @param x - new value of x
+	 * @return return the current instance of this vector
+	 */
+	public Vector2D x(double x) {
+		this.x = x;
+		return this;
+	}
+
+	/**
+	 * set value of y
+	 * @param y - new value of y
+	 * @return return the current instance of this vector
+	 */
+	public Vector2D y(double y) {
+		this.y = y;
+		return this;
+	}
+
+	/**
+	 * get the angle between this vector and given vector
+	 * @param v - a vector which to find the angle
+	 * @return angle between two vectors
+	 */
+	public double angle(Vector2D v) {
+		return Math.atan2(y - v.y, x - v.x);
+	}
+
+	/**
+	 * get the distance between this vector and given x and y
+	 * @param x - x of other point
+	 * @param y - y of other point
+	 * @return distance between the two
+	 */
+	public double distance(double x, double y) {
+		return Math.hypot(this.x - x, this.y - y);
+	}
+
+	/**
+	 * create a new property backed {@link Point} with the current values, to be used for binding.
+	 * @return new point
+	 */
+	public Point toPoint() {
+		return new Point(x, y);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Double.hashCode(x);
+		result = prime * result + Double.hashCode(y);
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Vector2D))
+			return false;
+		Vector2D other = (Vector2D) obj;
+		return x == other.x && y == other.y;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + x + "," + y + ")";
+	}
+}
@@ -0,0 +1,169 @@
+package raycast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import raycast.animator.AbstractAnimator;
+
+/**
+ * lifecycle of the animators set on a {@link CanvasMap}. mouse events are fired on the canvas with
+ * {@link Event#fireEvent}, which needs no stage. the animators below do not start the {@link javafx.animation.AnimationTimer}
+ * so the toolkit is never started.
+ */
+public class CanvasMapTest {
+
+	/**
+	 * animator which counts the calls made by the map instead of drawing
+	 */
+	private static class CountingAnimator extends AbstractAnimator {
+
+		int dragged, moved, clicked, starts, stops, releases;
+
+		@Override
+		public void mouseDragged(MouseEvent e) {
+			dragged++;
+		}
+
+		@Override
+		public void mouseMoved(MouseEvent e) {
+			moved++;
+		}
+
+		@Override
+		public void mouseClicked(MouseEvent e) {
+			clicked++;
+		}
+
+		@Override
+		public void start() {
+			starts++;
+		}
+
+		@Override
+		public void stop() {
+			stops++;
+		}
+
+		@Override
+		public void release() {
+			releases++;
+		}
+
+		@Override
+		protected void handle(GraphicsContext gc, long now) {
+		}
+	}
+
+	private CanvasMap map;
+	private List<CountingAnimator> animators;
+
+	@Before
+	public void setUp() {
+		map = new CanvasMap();
+		animators = new ArrayList<>();
+	}
+
+	private CountingAnimator switchTo() {
+		CountingAnimator animator = new CountingAnimator();
+		animators.add(animator);
+		map.setAnimator(animator);
+		return animator;
+	}
+
+	private void fire(EventType<MouseEvent> type) {
+		Event.fireEvent(map.getCanvas(), new MouseEvent(type, 10, 10, 10, 10, MouseButton.PRIMARY, 1, false, false,
+				false, false, false, false, false, true, false, true, null));
+	}
+
+	private int handled(CountingAnimator animator) {
+		return animator.dragged + animator.moved + animator.clicked;
+	}
+
+	@Test
+	public void handlerCountStaysConstantOverManySwitches() {
+		for (int i = 0; i < 100; i++) {
+			switchTo();
+		}
+		fire(MouseEvent.MOUSE_MOVED);
+		fire(MouseEvent.MOUSE_DRAGGED);
+		fire(MouseEvent.MOUSE_CLICKED);
+
+		CountingAnimator current = animators.get(animators.size() - 1);
+		assertEquals(1, current.moved);
+		assertEquals(1, current.dragged);
+		assertEquals(1, current.clicked);
+		int total = 0;
+		for (CountingAnimator animator : animators) {
+			total += handled(animator);
+		}
+		assertEquals(3, total);
+	}
+
+	@Test
+	public void switchReleasesOldAnimatorOnce() {
+		CountingAnimator first = switchTo();
+		CountingAnimator second = switchTo();
+		switchTo();
+
+		assertEquals(1, first.releases);
+		assertEquals(1, second.releases);
+		assertEquals(1, second.stops);
+	}
+
+	@Test
+	public void switchKeepsStoppedMapStopped() {
+		CountingAnimator first = switchTo();
+		map.stop();
+		CountingAnimator second = switchTo();
+
+		assertEquals(1, first.starts);
+		assertEquals(0, second.starts);
+	}
+
+	@Test
+	public void settingSameAnimatorAgainDoesNothing() {
+		CountingAnimator animator = switchTo();
+		assertSame(map, map.setAnimator(animator));
+		fire(MouseEvent.MOUSE_MOVED);
+
+		assertEquals(1, animator.starts);
+		assertEquals(0, animator.releases);
+		assertEquals(1, animator.moved);
+	}
+
+	@Test
+	public void castRaysFollowsRayCountAndBudget() {
+		map.rayCountProperty().set(100);
+		assertEquals(100, map.getCastRays());
+
+		// the budget starts above the ray count, the ray count is still the most rays cast
+		map.adaptiveRaysProperty().set(true);
+		assertEquals(100, map.getCastRays());
+
+		map.rayCountProperty().set(100000);
+		assertEquals(map.getRayBudget().getActiveRays(), map.getCastRays());
+		map.adaptiveRaysProperty().set(false);
+		assertEquals(100000, map.getCastRays());
+	}
+
+	@Test
+	public void removedHandlersAreNotCalled() {
+		CountingAnimator animator = switchTo();
+		map.removeMouseEvents();
+		map.removeMouseEvents();
+		fire(MouseEvent.MOUSE_MOVED);
+
+		assertEquals(0, handled(animator));
+	}
+}
@@ -0,0 +1,81 @@
+package raycast.animator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import raycast.CanvasMap;
+import raycast.entity.geometry.DirtyRegion;
+import raycast.entity.geometry.PolyShape;
+
+/**
+ * area of the canvas a ray animator draws again when shapes change. the animator does not start the
+ * {@link javafx.animation.AnimationTimer} and nothing is drawn, only the marked region is checked.
+ */
+public class AbstractRayAnimatorTest {
+
+	private CanvasMap map;
+	private AbstractRayAnimator animator;
+
+	@Before
+	public void setUp() {
+		map = new CanvasMap();
+		map.getCanvas().setWidth(800);
+		map.getCanvas().setHeight(600);
+		map.addSampleShapes();
+		animator = new MultiRayAnimator() {
+
+			@Override
+			public void start() {
+			}
+
+			@Override
+			public void stop() {
+			}
+		};
+		animator.setCanvas(map);
+		map.setAnimator(animator);
+		animator.markShapesChanged();
+		map.getDirtyRegion().clear();
+	}
+
+	private void fire(EventType<MouseEvent> type, double x, double y, boolean primaryDown) {
+		Event.fireEvent(map.getCanvas(), new MouseEvent(type, x, y, x, y, MouseButton.PRIMARY, 1, false, false,
+				false, false, primaryDown, false, false, true, false, false, null));
+	}
+
+	@Test
+	public void shapeDragMarksWholeCanvas() {
+		// inside the first sample shape
+		fire(MouseEvent.MOUSE_PRESSED, 170, 170, true);
+		fire(MouseEvent.MOUSE_DRAGGED, 180, 175, true);
+		DirtyRegion dirty = map.getDirtyRegion();
+		assertTrue(dirty.isDirty());
+		assertFalse(dirty.covers(map.w(), map.h()));
+
+		animator.markShapesChanged();
+		assertTrue(dirty.covers(map.w(), map.h()));
+	}
+
+	@Test
+	public void smallerSceneMarksWholeCanvas() {
+		map.shapes().setAll(new PolyShape().setPoints(10, 10, 20, 10, 20, 20));
+		DirtyRegion dirty = map.getDirtyRegion();
+		assertFalse(dirty.covers(map.w(), map.h()));
+
+		animator.markShapesChanged();
+		assertTrue(dirty.covers(map.w(), map.h()));
+	}
+
+	@Test
+	public void unchangedShapesMarkNothing() {
+		animator.markShapesChanged();
+		assertFalse(map.getDirtyRegion().isDirty());
+	}
+}